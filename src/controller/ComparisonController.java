@@ -0,0 +1,224 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import model.PriceSeries;
+import model.RebasedSeries;
+import model.Stock;
+import model.SymbolMaster;
+import model.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * ComparisonController class controls the ComparisonView.
+ * Overlays the prices of several stocks rebased to 100 on the first day of the
+ * timeline, on a shared DateAxis.
+ *
+ * The prices of each stock are loaded once, when it is added: adding a stock
+ * computes its own series only, and changing the timeline rebases the stocks
+ * already loaded in parallel and updates their series in place.
+ */
+public class ComparisonController {
+
+	// stocks compared at most, so that the lines stay readable
+	private static final int MAX_COMPARED_STOCKS = 8;
+
+	// points per series at most, each series being downsampled on its own
+	private static final int MAX_POINTS = 500;
+
+	private static final String[] TIMELINE_NAMES = { "1 Year", "2 Years", "5 Years", "All Time" };
+
+	// loads the prices of the stocks added, so that waiting on downloads does not
+	// hold up the common pool the series are rebased on
+	private static final ExecutorService loadExecutor = Executors.newFixedThreadPool(2, runnable -> {
+		Thread thread = new Thread(runnable, "comparison-load");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// stocks compared, by ticker, in the order they were added
+	private final Map<String, ComparedStock> comparedStocks = new LinkedHashMap<>();
+
+	// incremented when the timeline changes, so that rebasing for an older timeline is not graphed
+	private int timelineVersion;
+
+	@FXML
+	private ComboBox<SymbolMaster.Symbol> symbolChoice;
+
+	@FXML
+	private ComboBox<String> timelineChoice;
+
+	@FXML
+	private LineChart<Number, Number> comparisonChart;
+
+	@FXML
+	private Label status;
+
+	@FXML
+	private void initialize() {
+		symbolChoice.setItems(FXCollections.observableArrayList(SymbolMaster.getDefault().search("", Integer.MAX_VALUE)));
+
+		timelineChoice.setItems(FXCollections.observableArrayList(TIMELINE_NAMES));
+		timelineChoice.getSelectionModel().select(TimeInterval.OneYear.ordinal());
+		timelineChoice.setOnAction(event -> rebaseAll());
+	}
+
+	/**
+	 * Adds a stock to the comparison. Its prices are loaded in the background unless given.
+	 * @param name - name of the stock
+	 * @param ticker - ticker of the stock
+	 * @param prices - all-time prices already loaded, null to load them
+	 */
+	void compare(String name, String ticker, PriceSeries prices) {
+		if (comparedStocks.containsKey(ticker)) {
+			status.setText(name + " is already compared");
+			return;
+		}
+		if (comparedStocks.size() == MAX_COMPARED_STOCKS) {
+			status.setText("At most " + MAX_COMPARED_STOCKS + " stocks can be compared");
+			return;
+		}
+
+		XYChart.Series<Number, Number> series = new XYChart.Series<>();
+		series.setName(ticker);
+		comparisonChart.getData().add(series);
+
+		ComparedStock stock = new ComparedStock(ticker, new SeriesBinding(series, null));
+		comparedStocks.put(ticker, stock);
+		status.setText("Loading " + name + "...");
+
+		TimeInterval timeline = getTimeline();
+		int version = timelineVersion;
+
+		CompletableFuture<PriceSeries> load = prices != null ? CompletableFuture.completedFuture(prices)
+				: CompletableFuture.supplyAsync(() -> new Stock(name, ticker).getPrices(), loadExecutor);
+
+		load.thenApplyAsync(loadedPrices -> {
+			stock.prices = loadedPrices;
+
+			return RebasedSeries.compute(loadedPrices, timeline, MAX_POINTS);
+		}).whenComplete((rebased, error) -> Platform.runLater(() -> {
+			if (comparedStocks.get(ticker) != stock)
+				return; // removed meanwhile
+
+			if (error != null) {
+				error.printStackTrace();
+				status.setText(name + " could not be loaded");
+				return;
+			}
+
+			// the timeline changed while the prices were loading
+			PriceSeries values = version == timelineVersion ? rebased
+					: RebasedSeries.compute(stock.prices, getTimeline(), MAX_POINTS);
+			stock.binding.bind(values);
+			showSummary();
+		}));
+	}
+
+	/**
+	 * Selects the timeline the stocks are compared over.
+	 * @param timeline - interval compared, up to today
+	 */
+	void setTimeline(TimeInterval timeline) {
+		timelineChoice.getSelectionModel().select(timeline.ordinal());
+	}
+
+	/**
+	 * Adds the stock selected in the drop down to the comparison.
+	 * @param event - fired when the user presses the add button
+	 */
+	@FXML
+	private void addSelectedStock(ActionEvent event) {
+		SymbolMaster.Symbol symbol = symbolChoice.getValue();
+		if (symbol != null)
+			compare(symbol.getName(), symbol.getTicker(), null);
+	}
+
+	/**
+	 * Removes every stock from the comparison.
+	 * @param event - fired when the user presses the clear button
+	 */
+	@FXML
+	private void clearStocks(ActionEvent event) {
+		comparedStocks.clear();
+		comparisonChart.getData().clear();
+		status.setText("Add stocks to compare");
+	}
+
+	/**
+	 * Rebases the stocks already loaded on the timeline selected, in parallel,
+	 * then updates their series.
+	 */
+	private void rebaseAll() {
+		TimeInterval timeline = getTimeline();
+		int version = ++timelineVersion;
+
+		List<ComparedStock> loadedStocks = new ArrayList<>();
+		for (ComparedStock stock : comparedStocks.values()) {
+			if (stock.prices != null)
+				loadedStocks.add(stock);
+		}
+
+		CompletableFuture.supplyAsync(() -> {
+			PriceSeries[] rebased = new PriceSeries[loadedStocks.size()];
+			IntStream.range(0, rebased.length).parallel()
+					.forEach(i -> rebased[i] = RebasedSeries.compute(loadedStocks.get(i).prices, timeline, MAX_POINTS));
+
+			return rebased;
+		}).whenComplete((rebased, error) -> Platform.runLater(() -> {
+			if (error != null) {
+				error.printStackTrace();
+				return;
+			}
+			if (version != timelineVersion)
+				return; // the timeline changed again
+
+			for (int i = 0; i < rebased.length; i++) {
+				if (comparedStocks.get(loadedStocks.get(i).ticker) == loadedStocks.get(i))
+					loadedStocks.get(i).binding.bind(rebased[i]);
+			}
+			showSummary();
+		}));
+	}
+
+	private TimeInterval getTimeline() {
+		int selected = timelineChoice.getSelectionModel().getSelectedIndex();
+
+		return selected < 0 ? TimeInterval.OneYear : TimeInterval.values()[selected];
+	}
+
+	private void showSummary() {
+		status.setText(comparedStocks.size() + " stocks compared over " + TIMELINE_NAMES[getTimeline().ordinal()]);
+	}
+
+	/**
+	 * A stock in the comparison, with its prices once loaded
+	 */
+	private static class ComparedStock {
+
+		private final String ticker;
+		private final SeriesBinding binding;
+
+		// all-time prices, set on the thread loading them
+		private volatile PriceSeries prices;
+
+		ComparedStock(String ticker, SeriesBinding binding) {
+			this.ticker = ticker;
+			this.binding = binding;
+		}
+	}
+}
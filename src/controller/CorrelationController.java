@@ -0,0 +1,175 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import model.CorrelationMatrix;
+import model.PriceSeries;
+import model.Stock;
+import model.TimeInterval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * CorrelationController class controls the CorrelationView.
+ * Loads the prices of a set of stocks in the background, computes the
+ * correlations of their daily returns, and draws them as a heatmap:
+ * red for -1, white for 0 and blue for 1.
+ * Hovering a cell shows the pair of stocks and their correlation.
+ */
+public class CorrelationController {
+
+	// room left of and above the cells for the tickers
+	private static final double LABEL_SIZE = 50;
+	// size of the cells, between these bounds depending on the number of stocks
+	private static final double MIN_CELL_SIZE = 2;
+	private static final double MAX_CELL_SIZE = 20;
+	// tickers are only drawn when the cells are large enough to read them
+	private static final double MIN_LABELED_CELL_SIZE = 10;
+	// prices loaded at once, as many as the PriceFetchClient downloads at once
+	private static final int LOAD_THREADS = 4;
+
+	// loads the prices, so that waiting on downloads does not hold up the common pool
+	// the correlations and the overlays of the MainView are computed on
+	private static final ExecutorService loadExecutor = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "correlation-load");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private CorrelationMatrix matrix;
+	private String[] names;
+	private double cellSize;
+
+	@FXML
+	private Label status;
+
+	@FXML
+	private Canvas heatmap;
+
+	@FXML
+	private void initialize() {
+		heatmap.setOnMouseMoved(this::showHoveredCell);
+		heatmap.setOnMouseExited(event -> showSummary());
+	}
+
+	/**
+	 * Loads the prices of the stocks and computes their correlations in the background,
+	 * then draws them.
+	 * @param names - name of each stock
+	 * @param tickers - ticker of each stock, in the same order
+	 * @param timeline - interval of the returns
+	 */
+	void showCorrelations(String[] names, String[] tickers, TimeInterval timeline) {
+		this.names = names.clone();
+
+		List<CompletableFuture<PriceSeries>> loads = new ArrayList<>();
+		for (int i = 0; i < tickers.length; i++) {
+			String name = names[i];
+			String ticker = tickers[i];
+			loads.add(CompletableFuture.supplyAsync(() -> new Stock(name, ticker).getPrices(), loadExecutor));
+		}
+
+		// only the correlations, which do not wait on anything, are computed on the common pool
+		CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+			PriceSeries[] prices = new PriceSeries[loads.size()];
+			for (int i = 0; i < prices.length; i++)
+				prices[i] = loads.get(i).join();
+
+			return CorrelationMatrix.compute(tickers, prices, timeline);
+		}).whenComplete((result, error) -> Platform.runLater(() -> {
+			if (error != null) {
+				error.printStackTrace();
+				status.setText("The correlations could not be computed");
+				return;
+			}
+
+			matrix = result;
+			drawHeatmap();
+			showSummary();
+		}));
+	}
+
+	private void drawHeatmap() {
+		int size = matrix.size();
+		double gridSize = Math.min(heatmap.getWidth(), heatmap.getHeight()) - LABEL_SIZE;
+		cellSize = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, Math.floor(gridSize / Math.max(size, 1))));
+
+		GraphicsContext graphics = heatmap.getGraphicsContext2D();
+		graphics.clearRect(0, 0, heatmap.getWidth(), heatmap.getHeight());
+
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				graphics.setFill(getColor(matrix.get(row, column)));
+				graphics.fillRect(LABEL_SIZE + column * cellSize, LABEL_SIZE + row * cellSize, cellSize, cellSize);
+			}
+		}
+
+		if (cellSize < MIN_LABELED_CELL_SIZE)
+			return;
+
+		graphics.setFill(Color.web("#797979"));
+		graphics.setFont(Font.font(Math.min(cellSize - 2, 11)));
+
+		for (int i = 0; i < size; i++) {
+			double center = LABEL_SIZE + (i + 0.5) * cellSize;
+
+			// tickers of the rows, right aligned left of the cells
+			graphics.setTextAlign(TextAlignment.RIGHT);
+			graphics.fillText(matrix.getTicker(i), LABEL_SIZE - 4, center + cellSize / 3);
+
+			// tickers of the columns, written upwards above the cells
+			graphics.save();
+			graphics.translate(center + cellSize / 3, LABEL_SIZE - 4);
+			graphics.rotate(-90);
+			graphics.setTextAlign(TextAlignment.LEFT);
+			graphics.fillText(matrix.getTicker(i), 0, 0);
+			graphics.restore();
+		}
+	}
+
+	/**
+	 * @return red for -1, white for 0, blue for 1, gray if the correlation is undefined
+	 */
+	private static Color getColor(double correlation) {
+		if (Double.isNaN(correlation))
+			return Color.LIGHTGRAY;
+
+		double strength = Math.min(Math.abs(correlation), 1);
+		return correlation < 0
+				? Color.color(1, 1 - strength, 1 - strength)
+				: Color.color(1 - strength, 1 - strength, 1);
+	}
+
+	private void showHoveredCell(MouseEvent event) {
+		if (matrix == null)
+			return;
+
+		int row = (int) Math.floor((event.getY() - LABEL_SIZE) / cellSize);
+		int column = (int) Math.floor((event.getX() - LABEL_SIZE) / cellSize);
+
+		if (row < 0 || column < 0 || row >= matrix.size() || column >= matrix.size()) {
+			showSummary();
+			return;
+		}
+
+		double correlation = matrix.get(row, column);
+		status.setText(names[row] + " / " + names[column] + ": "
+				+ (Double.isNaN(correlation) ? "not enough prices" : String.format("%.2f", correlation)));
+	}
+
+	private void showSummary() {
+		if (matrix != null)
+			status.setText(matrix.size() + " stocks over " + matrix.getDayCount() + " trading days");
+	}
+}
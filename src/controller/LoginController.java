@@ -2,7 +2,6 @@ package controller;
 
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -41,14 +40,27 @@ public class LoginController {
      * @return True if valid, False if not
      */
     private boolean userInfoValid(String email, String password) {
-        String[] accountInfo = retrieveUserInfo(email);
-
-        if(accountInfo == null)
+        try {
+            return isValidAccount(email, password);
+        } catch (Exception e) {
+            displayError(e.getMessage());
             return false;
-        else if(accountInfo[0].equals(email) && accountInfo[1].equals(password))
-            return true;
+        }
+    }
 
-        return false;
+    /**
+     * Checks the credentials of an account without the LoginView,
+     * e.g. for the sessions simulated by tools.SessionLoadTest.
+     *
+     * @param email - user email to check
+     * @param password - user password entered
+     * @return True if valid, False if not
+     * @throws IOException if the database cannot be read
+     */
+    public static boolean isValidAccount(String email, String password) throws IOException {
+        String[] accountInfo = findAccount(email);
+
+        return accountInfo != null && accountInfo[0].equals(email) && accountInfo[1].equals(password);
     }
 
     /**
@@ -56,6 +68,20 @@ public class LoginController {
      * @return A two element array containing the user's email ([0]) and password ([1]) in the database
      */
     private String[] retrieveUserInfo(String email) {
+        try {
+            return findAccount(email);
+        } catch (Exception e) {
+            displayError(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param email - the email of the user
+     * @return A two element array containing the user's email ([0]) and password ([1]) in the database, null if there is none
+     * @throws IOException if the database cannot be read
+     */
+    private static String[] findAccount(String email) throws IOException {
         String[] accountInfo;
 
         try (BufferedReader reader = new BufferedReader(new FileReader("src/resources/accounts.txt"))) {
@@ -66,8 +92,6 @@ public class LoginController {
                     return accountInfo;
                 }
             }
-        } catch (Exception e) {
-            displayError(e.getMessage());
         }
 
         return null;
@@ -106,6 +130,23 @@ public class LoginController {
      * @return LimitedSizeStockQueue containing the User's saved recentlyViewedStocks.
      */
     private LimitedSizeStockQueue initializeRecentlyViewedStocks(String email) {
+        try {
+            return readRecentlyViewedStocks(email);
+        } catch (Exception e) {
+            displayError(e.getMessage());
+            return new LimitedSizeStockQueue();
+        }
+    }
+
+    /**
+     * Reads the User's recentlyViewedStocks from the save file, without the LoginView.
+     * The Stocks hold their name and ticker, their prices are not loaded.
+     *
+     * @param email User's email
+     * @return LimitedSizeStockQueue containing the User's saved recentlyViewedStocks, empty if there is no save file.
+     * @throws IOException if the save file exists but cannot be read
+     */
+    public static LimitedSizeStockQueue readRecentlyViewedStocks(String email) throws IOException {
         LimitedSizeStockQueue recentlyViewedStocks = new LimitedSizeStockQueue();
 
         String fileName = "src/resources/stock_info/" +email +".txt";
@@ -122,8 +163,6 @@ public class LoginController {
         } catch (FileNotFoundException ex){
             // user does not have any previously viewed stock info stored, return the default
             return recentlyViewedStocks;
-        } catch (Exception e) {
-            displayError(e.getMessage());
         }
         return recentlyViewedStocks;
     }
@@ -161,17 +200,12 @@ public class LoginController {
     }
 
     /**
-     * Loads an instance of the MainView, sets the size, and displays it to the user.
+     * Takes the MainView prepared by the MainViewLoader, sets the size, and displays it to the user.
      *
      * @param event - ActionEvent passed to it from the login() method
      */
     private void navigateToMain(ActionEvent event) {
-        Parent mainView = null;
-        try {
-            mainView = FXMLLoader.load(getClass().getResource("../view/MainView.fxml"));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        Parent mainView = MainViewLoader.takeMainView();
         Scene mainScene = new Scene(mainView, 1280, 720);
         Stage primaryStage = (Stage)((Node) event.getSource()).getScene().getWindow();
         primaryStage.setScene(mainScene);
@@ -7,8 +7,6 @@ import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -17,19 +15,49 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import model.BarResolution;
+import model.CrossoverAlert;
+import model.CrossoverAlertEngine;
+import model.CrossoverAlertLog;
+import model.IndicatorCache;
 import model.LimitedSizeStockQueue;
 import model.MovingAverageInterval;
+import model.PriceFeed;
+import model.PriceHistory;
+import model.PriceRefreshScheduler;
+import model.PriceSeries;
+import model.PriceStatistics;
+import model.PriceUpdate;
+import model.Recommendation;
+import model.SessionSnapshot;
 import model.Stock;
+import model.StockPipelineEvent;
+import model.StockUpdate;
+import model.SymbolMaster;
 import model.TimeInterval;
 import view.StocksRUs;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * MainController class controls the MainView.
@@ -46,19 +74,78 @@ import java.util.List;
 
 public class MainController {
 
+	// source of live prices, socket:host:port or file:path (see PriceFeed)
+	private static final String LIVE_FEED_SOURCE = System.getProperty("instock.feed", "file:src/resources/live_feed.csv");
+	// file every crossover alert is appended to
+	private static final String ALERT_LOG_FILE = "src/resources/alerts.log";
+	// number of alerts listed, the most recent first
+	private static final int MAX_ALERTS_SHOWN = 5;
+	// number of stocks listed for a search, the list is virtualized but the search is not
+	private static final int MAX_SEARCH_RESULTS = 200;
+	// stocks correlated at most, the first ones listed
+	private static final int MAX_CORRELATED_STOCKS = 50;
+
+	// controller of the MainView the user is logged in to, whose session is saved when the application stops
+	private static MainController activeController;
+
+	// loads prices in the background, a few at a time, so that waiting on downloads
+	// does not hold up the common pool the overlays are computed on
+	private static final ExecutorService loadExecutor = Executors.newFixedThreadPool(2, runnable -> {
+		Thread thread = new Thread(runnable, "main-view-load");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	private boolean isStockGenerated = false;
 	private boolean isMovingAverageSelected[], isTimeLineDisplayed[];
     private Stock currentStock;
 	private TimeInterval timeIntervals[];
 	private MovingAverageInterval movingAverageIntervals[];
-	private XYChart.Series<String, Number> stockSeries;
-	private XYChart.Series<String, Number> buyIntersectionSeries;
-	private XYChart.Series<String, Number> sellIntersectionSeries;
-	private XYChart.Series<String, Number>[] movingAverageSeries;
+	private XYChart.Series<Number, Number> stockSeries;
+	private XYChart.Series<Number, Number> buyIntersectionSeries;
+	private XYChart.Series<Number, Number> sellIntersectionSeries;
+	private XYChart.Series<Number, Number>[] movingAverageSeries;
+	private SeriesBinding stockBinding;
+	private SeriesBinding buyIntersectionBinding;
+	private SeriesBinding sellIntersectionBinding;
+	private SeriesBinding[] movingAverageBindings;
 	private Button timelineButtons[];
 
+	// incremented by graphMovingAverage, only the overlays of the latest request are graphed
+	private int movingAverageRequest;
+
+	// live prices are read on the feed thread, and graphed in batches on the FX thread
+	private PriceFeed liveFeed;
+	private volatile String liveTicker;
+	private final ConcurrentLinkedQueue<PriceUpdate> pendingLiveUpdates = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean isLiveGraphingScheduled = new AtomicBoolean(false);
+
+	// watches the recently viewed stocks for crossovers on every live price
+	private final CrossoverAlertEngine alertEngine = new CrossoverAlertEngine();
+
+	// tickers of the stocks to watch, only accessed from the FX thread, so that a stock
+	// whose prices finish loading after it left the recently viewed is not watched
+	private final Set<String> tickersToWatch = new HashSet<>();
+
+	// watches the recently viewed stocks from their new prices once they are refreshed after the close
+	private final PriceRefreshScheduler.Listener refreshListener = stock -> {
+		if (alertEngine.isWatched(stock.getTicker()))
+			alertEngine.watch(stock.getTicker(), stock.getPrices());
+	};
+
+	// items of the lists of stocks, the lists only create cells for the rows in view
+	private final ObservableList<SymbolMaster.Symbol> listedSymbols = FXCollections.observableArrayList();
+	private final ObservableList<Stock> recentStocks = FXCollections.observableArrayList();
+
+	// comparison window, while it is open
+	private Stage comparisonStage;
+	private ComparisonController comparisonController;
+
     @FXML
-	private Label username, recommendation;
+	private Label username, recommendation, statistics, moreSymbols;
+
+    @FXML
+    private Button liveButton;
 
     @FXML
 	private Button timeLineButton_1, timeLineButton_2, timeLineButton_5, timeLineButton_all;
@@ -67,45 +154,96 @@ public class MainController {
     private ComboBox<String> maDropDown_1, maDropDown_2;
 
     @FXML
-	private LineChart<String, Number> stockChart;
+    private ComboBox<String> resolutionDropDown;
 
     @FXML
-    private VBox favoritesContainer;
+	private LineChart<Number, Number> stockChart;
+
+    @FXML
+    private ListView<Stock> recentList;
+
+    @FXML
+    private ListView<SymbolMaster.Symbol> symbolList;
+
+    @FXML
+    private TextField symbolSearch;
+
+    @FXML
+    private VBox alertsContainer;
 
     /**
-     * Called when MainView is instantiated.
+     * Called when MainView is instantiated, before any user has logged in.
      * Modifies the chart's attributes, initializes buttons, and sets styles.
-     * Graphs DOW Jones 30 closing prices as a default stock.
+     * The default stock is graphed by showDefaultStock once it is downloaded.
      */
     @FXML
     private void initialize() {
         // Set graph's attributes
         stockChart.setCreateSymbols(false);
 
-		username.setText("Logged in as " + StocksRUs.getCurrentUser().getEmail());
-
         // Initialize all buttons inside arrays
     	initializeButtons();
     	
-    	// Default DOW30 index stock
-    	currentStock = new Stock("DOW Jones 30", "^DJI");
+    	// Sets style for recommendation label
+		recommendation.setStyle("-fx-font-size: 15px; -fx-font-weight: bold;");
+		recommendation.setText("Select moving averages");
+		recommendation.setTextFill(Color.BLACK);
+
+		// Prices are graphed daily until another resolution is picked
+		resolutionDropDown.getItems().setAll("Daily", "Weekly", "Monthly");
+		resolutionDropDown.getSelectionModel().select(BarResolution.Daily.ordinal());
+
+		// Lists the stocks, and searches them as the user types
+		symbolList.setItems(listedSymbols);
+		StockListCell.install(symbolList, SymbolMaster.Symbol::getName,
+				symbol -> selectStock(symbol.getName(), symbol.getTicker()));
+		moreSymbols.managedProperty().bind(moreSymbols.visibleProperty());
+		showSymbols("");
+		symbolSearch.textProperty().addListener((observable, oldQuery, query) -> showSymbols(query));
+
+		recentList.setItems(recentStocks);
+		StockListCell.install(recentList, Stock::getName,
+				stock -> selectStock(stock.getName(), stock.getTicker()));
+
+		// Alerts are logged, and listed on the FX thread
+		alertEngine.addListener(new CrossoverAlertLog(ALERT_LOG_FILE));
+		alertEngine.addListener(alert -> Platform.runLater(() -> showAlert(alert)));
+    }
+
+    /**
+     * Graphs the closing prices of the default stock (DOW Jones 30).
+     * Does nothing if the user has already selected another stock.
+     * @param stock - the default stock, already downloaded
+     */
+    void showDefaultStock(Stock stock) {
+    	if (currentStock != null)
+    		return;
+
+    	currentStock = stock;
+    	currentStock.setResolution(getSelectedResolution());
+    	liveTicker = currentStock.getTicker();
 
         // Set graph's name
         stockChart.setTitle(currentStock.getName());
     	     
         // Arm default timeline
     	timelineButtons[3].arm();
-    	
-    	// Sets style for recommendation label
-		recommendation.setStyle("-fx-font-size: 15px; -fx-font-weight: bold;");
-		recommendation.setText("Select moving averages");
-		recommendation.setTextFill(Color.BLACK);
 
-		// 
-        updateRecentlyViewedStocksView();
     	generateSeries();
     	graphClosingPrices();
     }
+
+    /**
+     * Fills in the information of the user who just logged in.
+     */
+    void showCurrentUser() {
+		username.setText("Logged in as " + StocksRUs.getCurrentUser().getEmail());
+		activeController = this;
+		PriceRefreshScheduler.getDefault().addListener(refreshListener);
+		restoreSession();
+        updateRecentlyViewedStocksView();
+        watchRecentlyViewedStocks();
+    }
     
     /**
      * Calls the time line graphing method if a stock has been selected.
@@ -117,6 +255,38 @@ public class MainController {
     		graphClosingPrices();
     }
     
+    /**
+     * Regraphs the current stock at the resolution selected, over the same timeline.
+     * The moving averages are cleared, they have to be graphed again at the new resolution.
+     * @param event - fired when user selects a resolution
+     */
+    @FXML
+    private void resolutionSelected(ActionEvent event) {
+    	if (!isStockGenerated)
+    		return;
+
+    	currentStock.setResolution(getSelectedResolution());
+
+    	for (int i = 0; i < timeIntervals.length; i++) {
+    		if (timeIntervals[i] == currentStock.getCurrentTimeline())
+    			timelineButtons[i].arm();
+    	}
+
+		recommendation.setText("Select moving averages");
+		recommendation.setTextFill(Color.BLACK);
+
+    	graphClosingPrices();
+    }
+
+    /**
+     * @return the resolution selected in the drop down, daily if none is
+     */
+    private BarResolution getSelectedResolution() {
+    	int selected = resolutionDropDown.getSelectionModel().getSelectedIndex();
+
+    	return selected < 0 ? BarResolution.Daily : BarResolution.values()[selected];
+    }
+    
     /**
      * Ensures the drop down lists of moving averages do not contain duplicates.
      * @param event - fired when user selects any moving averages from drop downs
@@ -203,28 +373,80 @@ public class MainController {
     }
 
     /**
-     * TODO - Add javadoc comments here
+     * Lists the user's recently viewed stocks, most recent first.
+     * The list's cells are kept, they are only handed the stocks in their new order.
      */
     private void updateRecentlyViewedStocksView() {
-        // If there are no recently viewed stocks:
-        if (StocksRUs.getCurrentUser().getRecentlyViewedStocks().isEmpty()) {
-            Label noFavorites = new Label("No Recently Viewed Stocks");
-            noFavorites.setStyle("-fx-font-size: 14px;");
-            favoritesContainer.getChildren().add(noFavorites);
-        }
-        else {
-			favoritesContainer.getChildren().clear();
-            for (Stock stock:StocksRUs.getCurrentUser().getRecentlyViewedStocks()) {
-                Button favoriteStock = new Button(stock.getName());
-                favoriteStock.setId(stock.getTicker());
-                favoriteStock.setOnAction(this::selectStock);
-                favoriteStock.setPrefWidth(185);
-                favoriteStock.setAlignment(Pos.TOP_LEFT);
-                favoritesContainer.getChildren().add(favoriteStock);
-            }
-        }
+        recentStocks.setAll(StocksRUs.getCurrentUser().getRecentlyViewedStocks());
     }
     
+    /**
+     * Lists the first stocks matching a search. Only the cells in view are laid out,
+     * and only the stocks listed are searched for, however many stocks match.
+     * A hint below the list tells when more stocks match.
+     * @param query - ticker or company name typed by the user, blank to list the first stocks
+     */
+    private void showSymbols(String query) {
+    	// one more stock than listed tells whether there are more
+    	List<SymbolMaster.Symbol> symbols = SymbolMaster.getDefault().search(query, MAX_SEARCH_RESULTS + 1);
+    	boolean hasMore = symbols.size() > MAX_SEARCH_RESULTS;
+
+    	listedSymbols.setAll(hasMore ? symbols.subList(0, MAX_SEARCH_RESULTS) : symbols);
+    	symbolList.scrollTo(0);
+
+    	moreSymbols.setText(hasMore ? "More stocks match, type more of the name or ticker" : null);
+    	moreSymbols.setVisible(hasMore);
+    }
+
+    /**
+     * Watches the user's recently viewed stocks for crossovers, and stops watching
+     * the stocks no longer in the list. Stocks restored from the save file have no
+     * prices yet, they are loaded in the background, and only watched if they are
+     * still in the list once loaded.
+     * The stocks are also the first refreshed by the PriceRefreshScheduler.
+     */
+    private void watchRecentlyViewedStocks() {
+    	tickersToWatch.clear();
+
+    	for (Stock stock : StocksRUs.getCurrentUser().getRecentlyViewedStocks()) {
+    		tickersToWatch.add(stock.getTicker());
+    		if (alertEngine.isWatched(stock.getTicker()))
+    			continue;
+
+    		CompletableFuture.supplyAsync(() -> {
+    			PriceSeries prices = stock.getPrices();
+    			return prices.size() > 0 ? prices : new Stock(stock.getName(), stock.getTicker()).getPrices();
+    		}, loadExecutor).thenAccept(prices -> Platform.runLater(() -> {
+    			if (tickersToWatch.contains(stock.getTicker()) && !alertEngine.isWatched(stock.getTicker()))
+    				alertEngine.watch(stock.getTicker(), prices);
+    		})).exceptionally(error -> {
+    			error.printStackTrace();
+    			return null;
+    		});
+    	}
+
+    	alertEngine.retainOnly(tickersToWatch);
+
+    	// the recently viewed stocks are refreshed first after the close
+    	PriceRefreshScheduler.getDefault().setPriorityStocks(StocksRUs.getCurrentUser().getRecentlyViewedStocks());
+    }
+
+    /**
+     * Lists a crossover alert above the previous ones.
+     * @param alert - crossover detected on a watched stock
+     */
+    private void showAlert(CrossoverAlert alert) {
+    	String shortName = alert.isPriceCrossover() ? "Price" : alert.getShortInterval().getDays() + " days";
+    	Label alertLabel = new Label(alert.getSignal() + " " + alert.getTicker() + " - "
+    			+ shortName + " / " + alert.getLongInterval().getDays() + " days");
+    	alertLabel.setStyle("-fx-font-size: 14px;");
+    	alertLabel.setTextFill(alert.getSignal() == Recommendation.BUY ? Color.GREEN : Color.RED);
+
+    	alertsContainer.getChildren().add(0, alertLabel);
+    	if (alertsContainer.getChildren().size() > MAX_ALERTS_SHOWN)
+    		alertsContainer.getChildren().remove(MAX_ALERTS_SHOWN, alertsContainer.getChildren().size());
+    }
+
     /**
      * Resets moving average drop down items to default.
      */
@@ -255,19 +477,19 @@ public class MainController {
     
     /**
      * Allows the user to select new stock to graph its closing price.
-     * @param event - fired when the user selects a stock
+     * @param name - name of the stock clicked
+     * @param ticker - ticker of the stock clicked
      */
-    @FXML
-    private void selectStock(ActionEvent event) {
-    	
-    	// Get clicked button information
-    	Button clickedButton = (Button) event.getSource();
+    private void selectStock(String name, String ticker) {
 
     	// Ensures no computation will be done if same stock is selected
-    	if (currentStock == null || currentStock.getName().compareTo(clickedButton.getText()) != 0) {
+    	if (currentStock == null || currentStock.getName().compareTo(name) != 0) {
     		
     		// Change current stock
-	    	currentStock = new Stock(clickedButton.getText(), clickedButton.getId());
+	    	currentStock = new Stock(name, ticker);
+	    	currentStock.setResolution(getSelectedResolution());
+	    	liveTicker = currentStock.getTicker();
+	    	pendingLiveUpdates.clear();
 
 			// adds this stock to user's recently viewed
 			StocksRUs.getCurrentUser().getRecentlyViewedStocks().addToFront(currentStock);
@@ -291,6 +513,7 @@ public class MainController {
 	    	resetIntersections();
 
 	    	updateRecentlyViewedStocksView();
+	    	watchRecentlyViewedStocks();
     	}
     }
 
@@ -302,7 +525,15 @@ public class MainController {
 	 */
     @FXML
     private void logout(ActionEvent event) {
+		stopLiveMode();
+		tickersToWatch.clear();
+		alertEngine.unwatchAll();
+		PriceRefreshScheduler.getDefault().removeListener(refreshListener);
+		PriceRefreshScheduler.getDefault().setPriorityStocks(Collections.emptyList());
+
 		persistRecentlyViewedStocks();
+		saveSession();
+		activeController = null;
 
     	navigateToLogin(event);
     }
@@ -330,6 +561,204 @@ public class MainController {
 		}
 	}
 
+	/**
+	 * Saves what the logged in User is looking at, so that it is shown again at their next login.
+	 * Called when the application stops.
+	 */
+	public static void persistSession() {
+		if (activeController != null)
+			activeController.saveSession();
+	}
+
+	/**
+	 * @return the file the User's session is saved to, next to their recentlyViewedStocks
+	 */
+	private static File getSessionFile() {
+		return new File("src/resources/stock_info/" + StocksRUs.getCurrentUser().getEmail() + SessionSnapshot.EXTENSION);
+	}
+
+	/**
+	 * Saves the current stock, its timeline and resolution, and the series graphed as they are.
+	 * Does nothing if no stock is graphed yet.
+	 */
+	private void saveSession() {
+		if (currentStock == null || !isStockGenerated)
+			return;
+
+		Map<MovingAverageInterval, PriceSeries> movingAverages = new LinkedHashMap<>();
+		for (int i = 0; i < movingAverageBindings.length; i++) {
+			if (!movingAverageSeries[i].getData().isEmpty())
+				movingAverages.put(movingAverageIntervals[i], movingAverageBindings[i].getValues());
+		}
+
+		SessionSnapshot snapshot = new SessionSnapshot(currentStock, stockBinding.getValues(), movingAverages,
+				buyIntersectionBinding.getValues(), sellIntersectionBinding.getValues(), statistics.getText());
+
+		try {
+			snapshot.write(getSessionFile());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Shows the stock the User was looking at when they logged out, as it was graphed,
+	 * without downloading its prices or computing the series again.
+	 * Does nothing if the User has no saved session, the default stock is shown instead.
+	 */
+	private void restoreSession() {
+		SessionSnapshot snapshot;
+		try {
+			snapshot = SessionSnapshot.read(getSessionFile());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		if (snapshot == null)
+			return;
+
+		currentStock = snapshot.restoreStock();
+		liveTicker = currentStock.getTicker();
+		pendingLiveUpdates.clear();
+		movingAverageRequest++;
+
+		stockChart.setTitle(currentStock.getName());
+
+		// selecting the resolution must not regraph the stock
+		EventHandler<ActionEvent> onResolutionSelected = resolutionDropDown.getOnAction();
+		resolutionDropDown.setOnAction(null);
+		resolutionDropDown.getSelectionModel().select(snapshot.getResolution().ordinal());
+		resolutionDropDown.setOnAction(onResolutionSelected);
+
+		if (!isStockGenerated)
+			generateSeries();
+		clearData();
+
+		for (int i = 0; i < timeIntervals.length; i++) {
+			if (timeIntervals[i] == snapshot.getTimeline()) {
+				timelineButtons[i].disarm();
+				isTimeLineDisplayed[i] = true;
+				stockSeries.setName(getClosingPricesName(i));
+			}
+		}
+
+		graphSeries(stockBinding, snapshot.getPrices(), null);
+		for (int i = 0; i < movingAverageBindings.length; i++) {
+			PriceSeries movingAverage = snapshot.getMovingAverage(movingAverageIntervals[i]);
+			if (movingAverage != null)
+				graphSeries(movingAverageBindings[i], movingAverage, movingAverageIntervals[i]);
+		}
+		graphSeries(buyIntersectionBinding, snapshot.getBuys(), null);
+		graphSeries(sellIntersectionBinding, snapshot.getSells(), null);
+
+		statistics.setText(snapshot.getStatistics());
+		restoreMovingAverageSelection(snapshot);
+
+		if (snapshot.hasIntersections())
+			showRecommendation();
+		else {
+			recommendation.setText("Select moving averages");
+			recommendation.setTextFill(Color.BLACK);
+		}
+
+		reloadRestoredStock(currentStock);
+	}
+
+	/**
+	 * Selects the moving averages of a restored session in the drop downs,
+	 * as the user had, without graphing them again.
+	 * @param snapshot - session restored
+	 */
+	private void restoreMovingAverageSelection(SessionSnapshot snapshot) {
+		resetMovingAverageDropdownsSelection();
+
+		EventHandler<ActionEvent> maController_1 = maDropDown_1.getOnAction();
+		EventHandler<ActionEvent> maController_2 = maDropDown_2.getOnAction();
+
+		maDropDown_1.setOnAction(null);
+		maDropDown_2.setOnAction(null);
+
+		List<String> selectedMovingAverages = new ArrayList<>();
+		for (int i = 0; i < movingAverageIntervals.length; i++) {
+			isMovingAverageSelected[i] = snapshot.getMovingAverage(movingAverageIntervals[i]) != null;
+			if (isMovingAverageSelected[i])
+				selectedMovingAverages.add(movingAverageIntervals[i].getDays() + " Days");
+		}
+
+		// as in movingAverageSelected, a moving average selected in a drop down is removed from the other
+		if (selectedMovingAverages.size() > 0) {
+			maDropDown_1.getSelectionModel().select(selectedMovingAverages.get(0));
+			maDropDown_2.getItems().remove(selectedMovingAverages.get(0));
+		}
+		if (selectedMovingAverages.size() > 1) {
+			maDropDown_2.getSelectionModel().select(selectedMovingAverages.get(1));
+			maDropDown_1.getItems().remove(selectedMovingAverages.get(1));
+		}
+
+		maDropDown_1.setOnAction(maController_1);
+		maDropDown_2.setOnAction(maController_2);
+	}
+
+	/**
+	 * Loads the prices of a restored stock in the background, from the PriceStore or the network
+	 * as for any selected stock, since they may have changed since the session was saved.
+	 * The stock is graphed again if they did and the user is still looking at it.
+	 * @param restoredStock - stock restored from the session
+	 */
+	private void reloadRestoredStock(Stock restoredStock) {
+		PriceSeries restoredPrices = restoredStock.getPrices();
+
+		CompletableFuture.supplyAsync(() -> new Stock(restoredStock.getName(), restoredStock.getTicker()), loadExecutor)
+				.thenAccept(loadedStock -> {
+					PriceSeries loadedPrices = loadedStock.getPrices();
+					if (loadedPrices.size() == 0 || IndicatorCache.fingerprint(loadedPrices) == IndicatorCache.fingerprint(restoredPrices))
+						return;
+
+					Platform.runLater(() -> {
+						if (currentStock == restoredStock)
+							showReloadedStock(loadedStock);
+					});
+				}).exceptionally(error -> {
+					error.printStackTrace();
+					return null;
+				});
+	}
+
+	/**
+	 * Replaces the current stock with the same stock with newer prices, and graphs it again
+	 * over the same timeline and resolution, with the same moving averages.
+	 * The moving averages selected in the drop downs are kept.
+	 * @param loadedStock - current stock, with its prices loaded again
+	 */
+	private void showReloadedStock(Stock loadedStock) {
+		loadedStock.setTimeline(currentStock.getCurrentTimeline());
+		loadedStock.setResolution(currentStock.getResolution());
+
+		boolean[] isMovingAverageGraphed = new boolean[movingAverageSeries.length];
+		boolean isAnyMovingAverageGraphed = false;
+		for (int i = 0; i < movingAverageSeries.length; i++) {
+			isMovingAverageGraphed[i] = !movingAverageSeries[i].getData().isEmpty();
+			isAnyMovingAverageGraphed |= isMovingAverageGraphed[i];
+		}
+		boolean[] selectedMovingAverages = isMovingAverageSelected.clone();
+
+		currentStock = loadedStock;
+		pendingLiveUpdates.clear();
+
+		for (int i = 0; i < timeIntervals.length; i++) {
+			if (timeIntervals[i] == loadedStock.getCurrentTimeline())
+				timelineButtons[i].arm();
+		}
+		graphClosingPrices();
+
+		// graphing the prices clears the selection, which the drop downs still show
+		System.arraycopy(selectedMovingAverages, 0, isMovingAverageSelected, 0, selectedMovingAverages.length);
+
+		if (isAnyMovingAverageGraphed)
+			graphMovingAverages(isMovingAverageGraphed);
+	}
+
 	/**
      * Adds closing prices of currently selected stock according to
      * currently selected time interval. Updates graph information.
@@ -339,6 +768,8 @@ public class MainController {
     	
     	resetIntersections();
 
+    	boolean isGraphed = false;
+
         // Loop for all timeline Buttons
         for (int i = 0; i < timelineButtons.length; i++) {
 		    // Filter which timeline is picked
@@ -346,16 +777,14 @@ public class MainController {
 		    	// Updates current Timeline
 		        currentStock.setTimeline(timeIntervals[i]);
 
-		        // Generates stock info and set up name for the title
-		        stockSeries.getData().addAll(currentStock.getPricesInRange().getData());
+		        // Generates stock info and set up name for the title, reusing the points already graphed
+		        graphSeries(stockBinding, currentStock.getPricesInRange(), null);
+		        isGraphed = true;
 	            
 		        // Add the correct timeline name to legend
-		        switch (i) {
-			        case 0: stockSeries.setName("Closing Prices: One Year"); break;
-			        case 1: stockSeries.setName("Closing Prices: Two Years"); break;
-			        case 2: stockSeries.setName("Closing Prices: Five Years"); break;
-			        case 3: stockSeries.setName("Closing Prices: All Time"); break;
-		        }
+		        stockSeries.setName(getClosingPricesName(i));
+
+		        showStatistics();
 		        
 		        // Loads currently selected MAs with new timeline
 		        //graphMovingAverage();
@@ -369,6 +798,53 @@ public class MainController {
 		        break;
 		    }
         }
+
+        if (!isGraphed)
+        	stockBinding.clear();
+    }
+
+    /**
+     * @param timelineIndex - index of the timeline button
+     * @return the name of the closing prices in the legend
+     */
+    private String getClosingPricesName(int timelineIndex) {
+    	switch (timelineIndex) {
+	    	case 0: return "Closing Prices: One Year";
+	    	case 1: return "Closing Prices: Two Years";
+	    	case 2: return "Closing Prices: Five Years";
+	    	default: return "Closing Prices: All Time";
+    	}
+    }
+
+    /**
+     * Shows the highs, lows and drawdown of the current stock over its timeline.
+     * Answered from the index of the stock's prices, without scanning them.
+     */
+    private void showStatistics() {
+    	PriceStatistics stockStatistics = currentStock.getStatistics(currentStock.getCurrentTimeline());
+
+    	if (stockStatistics == null) {
+    		statistics.setText("No prices over this timeline");
+    		return;
+    	}
+
+    	statistics.setText(String.format("High: %.2f on %s%nLow: %.2f on %s%nAll-time high: %.2f on %s%nMax drawdown: %.1f%%%nBelow high: %.1f%%",
+    			stockStatistics.getHigh(), PriceHistory.formatEpochDay(stockStatistics.getHighDay()),
+    			stockStatistics.getLow(), PriceHistory.formatEpochDay(stockStatistics.getLowDay()),
+    			stockStatistics.getAllTimeHigh(), PriceHistory.formatEpochDay(stockStatistics.getAllTimeHighDay()),
+    			stockStatistics.getMaxDrawdown() * 100, stockStatistics.getDistanceFromHigh() * 100));
+    }
+
+    /**
+     * Graphs new values in a series, reusing its points.
+     * @param binding - binding of the series graphing the values
+     * @param values - values to graph, oldest first
+     * @param interval - moving average the values are, null for closing prices or intersections
+     */
+    private void graphSeries(SeriesBinding binding, PriceSeries values, MovingAverageInterval interval) {
+    	StockPipelineEvent event = StockPipelineEvent.begin(StockPipelineEvent.Stage.LIST_TO_SERIES, currentStock, interval, values.size());
+    	binding.bind(values);
+    	event.complete(binding.getSeries().getData().size());
     }
     
     /**
@@ -379,65 +855,8 @@ public class MainController {
     @FXML
     private void graphMovingAverage(ActionEvent event) {
     	
-    	resetIntersections();
-    	
     	if (isStockGenerated) {
-	    	for (int i = 0; i < 4; i++) {
-	    		if (isMovingAverageSelected[i]) {
-	    			movingAverageSeries[i].getData().addAll(currentStock.getMovingAverage(movingAverageIntervals[i]).getData());
-	    		}
-	    		else
-	    			movingAverageSeries[i].getData().removeAll(movingAverageSeries[i].getData());
-	    	}
-	    	
-	    	boolean ifTwoMAsAreSelected = false;
-	    	
-	    	for (int i = 0; i < 4; i++) {
-	    		
-	    		if (ifTwoMAsAreSelected)
-	    			break;
-	    		
-	    		for (int j = 0; j < 4; j++) {
-	    			if (i != j && isMovingAverageSelected[i] && isMovingAverageSelected[j]) {
-
-	    				XYChart.Series<String, Number> tempIntersectionsSeries = currentStock.getIntersectionsList(movingAverageIntervals[i], movingAverageIntervals[j]);
-	    				
-	    				graphIntersections(tempIntersectionsSeries);
-	    				
-	    				ifTwoMAsAreSelected = true;
-	    				break;
-	    			}
-	    		}
-	    	}
-	    	
-	    	if (!ifTwoMAsAreSelected)
-	    	{
-	    		for (int i = 0; i < 4; i++) 
-	    		{
-	    			if (isMovingAverageSelected[i]) 
-	    			{
-	    				XYChart.Series<String, Number> tempIntersectionsSeries = currentStock.getIntersectionsList(movingAverageIntervals[i], movingAverageIntervals[i]);
-	    				
-	    				graphIntersections(tempIntersectionsSeries);
-	    			}
-	    		}
-	    	}
-				
-	    	
-	    	switch(currentStock.getRecommendation()) {
-		    	case 0:
-		    		recommendation.setText("HOLD");
-		    		recommendation.setTextFill(Color.GRAY);
-		    		break;
-		    	case 1:
-		    		recommendation.setText("BUY");
-		    		recommendation.setTextFill(Color.GREEN);
-		    		break;
-		    	case 2:
-		    		recommendation.setText("SELL");
-		    		recommendation.setTextFill(Color.RED);
-		    		break;
-	    	}
+    		graphMovingAverages(isMovingAverageSelected);
 	    	
 	    	for (int i = 0; i < 4; i++) {
 	    		isMovingAverageSelected[i] = false;
@@ -446,50 +865,394 @@ public class MainController {
 	    	resetMovingAverageDropdownsSelection();
     	}
     }
+
+    /**
+     * Computes moving averages and their intersections concurrently off the FX thread,
+     * then graphs them at once, unless the stock or its timeline changed meanwhile.
+     * @param isSelected - whether each moving average is graphed
+     */
+    private void graphMovingAverages(boolean[] isSelected) {
+    	Stock stock = currentStock;
+    	TimeInterval timeline = stock.getCurrentTimeline();
+    	BarResolution resolution = stock.getResolution();
+    	int request = ++movingAverageRequest;
+
+    	// every overlay is computed concurrently off the FX thread, then graphed at once
+    	List<CompletableFuture<?>> tasks = new ArrayList<>();
+    	List<CompletableFuture<PriceSeries>> movingAverageTasks = new ArrayList<>(Collections.nCopies(4, null));
+
+    	for (int i = 0; i < 4; i++) {
+    		if (isSelected[i]) {
+    			MovingAverageInterval interval = movingAverageIntervals[i];
+    			movingAverageTasks.set(i, CompletableFuture.supplyAsync(() -> stock.getMovingAverage(interval)));
+    			tasks.add(movingAverageTasks.get(i));
+    		}
+    	}
+
+    	// intersections of the 2 selected moving averages, or of the prices and the only one selected
+    	int shortIndex = -1;
+    	int longIndex = -1;
+    	for (int i = 0; i < 4; i++) {
+    		if (isSelected[i]) {
+    			if (shortIndex == -1)
+    				shortIndex = i;
+    			else if (longIndex == -1)
+    				longIndex = i;
+    		}
+    	}
+
+    	CompletableFuture<PriceSeries> intersectionsTask = null;
+    	if (shortIndex != -1) {
+    		MovingAverageInterval shortMA = movingAverageIntervals[shortIndex];
+    		MovingAverageInterval longMA = movingAverageIntervals[longIndex == -1 ? shortIndex : longIndex];
+    		intersectionsTask = CompletableFuture.supplyAsync(() -> stock.getIntersectionsList(shortMA, longMA));
+    		tasks.add(intersectionsTask);
+    	}
+
+    	CompletableFuture<PriceSeries> intersections = intersectionsTask;
+    	CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+    		if (error != null) {
+    			error.printStackTrace();
+    			return;
+    		}
+
+    		Platform.runLater(() -> {
+    			// a newer request, another stock, timeline or resolution makes these overlays outdated
+    			if (request != movingAverageRequest || stock != currentStock || timeline != stock.getCurrentTimeline()
+    					|| resolution != stock.getResolution())
+    				return;
+
+    			graphMovingAverageResults(movingAverageTasks, intersections);
+    		});
+    	});
+    }
+
+    /**
+     * Graphs the moving averages and intersections computed by graphMovingAverage in a single update.
+     * @param movingAverageTasks - completed computation of each moving average, null if it is not selected
+     * @param intersectionsTask - completed computation of the intersections, null if no moving average is selected
+     */
+    private void graphMovingAverageResults(List<CompletableFuture<PriceSeries>> movingAverageTasks,
+    		CompletableFuture<PriceSeries> intersectionsTask) {
+    	for (int i = 0; i < 4; i++) {
+    		if (movingAverageTasks.get(i) != null)
+    			graphSeries(movingAverageBindings[i], movingAverageTasks.get(i).join(), movingAverageIntervals[i]);
+    		else
+    			movingAverageBindings[i].clear();
+    	}
+
+    	if (intersectionsTask != null)
+    		graphIntersections(intersectionsTask.join());
+    	else
+    		resetIntersections();
+
+    	showRecommendation();
+    }
     
+    /**
+     * Displays the recommendation of the current stock.
+     */
+    private void showRecommendation() {
+    	switch(currentStock.getRecommendation()) {
+	    	case 0:
+	    		recommendation.setText("HOLD");
+	    		recommendation.setTextFill(Color.GRAY);
+	    		break;
+	    	case 1:
+	    		recommendation.setText("BUY");
+	    		recommendation.setTextFill(Color.GREEN);
+	    		break;
+	    	case 2:
+	    		recommendation.setText("SELL");
+	    		recommendation.setTextFill(Color.RED);
+	    		break;
+    	}
+    }
+
+    /**
+     * Starts or stops graphing live prices of the current stock.
+     * @param event - fired when user presses the live button
+     */
+    @FXML
+    private void toggleLiveMode(ActionEvent event) {
+    	if (liveFeed == null) {
+    		liveFeed = new PriceFeed(LIVE_FEED_SOURCE);
+    		liveFeed.start(this::queueLiveUpdate);
+    		liveButton.setText("Stop Live");
+    	}
+    	else
+    		stopLiveMode();
+    }
+
+    /**
+     * Opens a window with the correlations of the first stocks listed,
+     * over the timeline of the current stock.
+     * @param event - fired when user presses the correlations button
+     */
+    @FXML
+    private void showCorrelations(ActionEvent event) {
+    	Map<String, String> namesByTicker = new LinkedHashMap<>();
+    	for (SymbolMaster.Symbol symbol : listedSymbols) {
+    		if (namesByTicker.size() == MAX_CORRELATED_STOCKS)
+    			break;
+    		namesByTicker.putIfAbsent(symbol.getTicker(), symbol.getName());
+    	}
+
+    	FXMLLoader loader = new FXMLLoader(getClass().getResource("../view/CorrelationView.fxml"));
+    	Parent correlationView = null;
+
+    	try {
+    		correlationView = loader.load();
+    	}
+    	catch (IOException e) {
+    		e.printStackTrace();
+    		return;
+    	}
+
+    	Stage correlationStage = new Stage();
+    	correlationStage.setTitle("Correlations");
+    	correlationStage.setScene(new Scene(correlationView));
+    	correlationStage.show();
+
+    	TimeInterval timeline = currentStock != null ? currentStock.getCurrentTimeline() : TimeInterval.OneYear;
+    	CorrelationController correlationController = loader.getController();
+    	correlationController.showCorrelations(namesByTicker.values().toArray(new String[0]),
+    			namesByTicker.keySet().toArray(new String[0]), timeline);
+    }
+
+    /**
+     * Adds the current stock to the comparison window, opening it if needed.
+     * The prices already loaded for the current stock are reused.
+     * @param event - fired when user presses the compare button
+     */
+    @FXML
+    private void showComparison(ActionEvent event) {
+    	if (comparisonStage == null) {
+    		FXMLLoader loader = new FXMLLoader(getClass().getResource("../view/ComparisonView.fxml"));
+    		Parent comparisonView = null;
+
+    		try {
+    			comparisonView = loader.load();
+    		}
+    		catch (IOException e) {
+    			e.printStackTrace();
+    			return;
+    		}
+
+    		comparisonStage = new Stage();
+    		comparisonStage.setTitle("Comparison");
+    		comparisonStage.setScene(new Scene(comparisonView));
+    		comparisonStage.setOnHidden(hiddenEvent -> {
+    			comparisonStage = null;
+    			comparisonController = null;
+    		});
+
+    		comparisonController = loader.getController();
+    		if (currentStock != null)
+    			comparisonController.setTimeline(currentStock.getCurrentTimeline());
+    	}
+
+    	comparisonStage.show();
+    	comparisonStage.toFront();
+
+    	if (currentStock != null)
+    		comparisonController.compare(currentStock.getName(), currentStock.getTicker(), currentStock.getPrices());
+    }
+
+    /**
+     * Stops the live feed, if running.
+     */
+    private void stopLiveMode() {
+    	if (liveFeed != null) {
+    		liveFeed.stop();
+    		liveFeed = null;
+    	}
+    	pendingLiveUpdates.clear();
+    	liveButton.setText("Go Live");
+    }
+
+    /**
+     * Called on the feed thread for every live price. Checks the watched stocks
+     * for crossovers, queues the prices of the current stock, and schedules a single graphing pass on the FX thread for
+     * however many prices arrive before it runs.
+     * @param update - price read by the live feed
+     */
+    private void queueLiveUpdate(PriceUpdate update) {
+    	alertEngine.onPrice(update);
+
+    	if (!update.getTicker().equals(liveTicker))
+    		return;
+
+    	pendingLiveUpdates.add(update);
+
+    	if (isLiveGraphingScheduled.compareAndSet(false, true))
+    		Platform.runLater(this::graphLiveUpdates);
+    }
+
+    /**
+     * Appends the queued live prices to the current stock, and adds the new
+     * points to the graph in bulk, without regraphing the existing ones.
+     * The statistics shown are updated too, in O(log n) from the index of the prices.
+     */
+    private void graphLiveUpdates() {
+    	isLiveGraphingScheduled.set(false);
+
+    	if (!isStockGenerated) {
+    		pendingLiveUpdates.clear();
+    		return;
+    	}
+
+    	List<XYChart.Data<Number, Number>> newPrices = new ArrayList<>();
+    	List<List<XYChart.Data<Number, Number>>> newMovingAverages = new ArrayList<>();
+    	for (int i = 0; i < 4; i++)
+    		newMovingAverages.add(new ArrayList<>());
+    	boolean hasPriceChanged = false;
+    	boolean hasCrossoverChanged = false;
+
+    	PriceUpdate update;
+    	while ((update = pendingLiveUpdates.poll()) != null) {
+    		if (!update.getTicker().equals(currentStock.getTicker()))
+    			continue;
+
+    		StockUpdate change = currentStock.appendPrice(update.getDate(), update.getPrice());
+    		if (change == null)
+    			continue;
+    		hasPriceChanged = true;
+
+    		updateLivePoint(stockSeries, newPrices, change.getRevisedDay(), change.getDay(), change.getPrice());
+
+    		// only the moving averages currently graphed are advanced
+    		for (int i = 0; i < 4; i++) {
+    			double movingAverage = change.getMovingAverage(movingAverageIntervals[i]);
+    			if (!movingAverageSeries[i].getData().isEmpty() && !Double.isNaN(movingAverage))
+    				updateLivePoint(movingAverageSeries[i], newMovingAverages.get(i), change.getRevisedDay(), change.getDay(), movingAverage);
+    		}
+
+    		// a revised day can undo the crossover it had
+    		if (change.getPreviousCrossover() != Recommendation.HOLD) {
+    			XYChart.Series<Number, Number> previousSeries = change.getPreviousCrossover() == Recommendation.BUY ? buyIntersectionSeries : sellIntersectionSeries;
+    			if (!previousSeries.getData().isEmpty())
+    				previousSeries.getData().remove(previousSeries.getData().size() - 1);
+    			hasCrossoverChanged = true;
+    		}
+    		if (change.getCrossover() != Recommendation.HOLD) {
+    			boolean isBuy = change.getCrossover() == Recommendation.BUY;
+    			XYChart.Data<Number, Number> intersection = new XYChart.Data<>(change.getDay(), change.getCrossoverValue());
+    			intersection.setNode(createIntersectionMarker(isBuy));
+    			(isBuy ? buyIntersectionSeries : sellIntersectionSeries).getData().add(intersection);
+    			hasCrossoverChanged = true;
+    		}
+    	}
+
+    	// the window of the timeline slides forward, except for all time
+    	boolean isSliding = currentStock.getCurrentTimeline() != TimeInterval.AllTime;
+    	appendLivePoints(stockSeries, newPrices, isSliding);
+    	for (int i = 0; i < 4; i++)
+    		appendLivePoints(movingAverageSeries[i], newMovingAverages.get(i), isSliding);
+
+    	// a live price can be a new high, low or drawdown
+    	if (hasPriceChanged)
+    		showStatistics();
+
+    	if (hasCrossoverChanged)
+    		showRecommendation();
+    }
+
+    /**
+     * Revises the point of the given day if it is the last one of the series,
+     * otherwise queues a new point to be appended.
+     * @param series - series being updated
+     * @param newPoints - points queued to be appended to the series
+     * @param revisedDay - day of the point revised, which a weekly or monthly bar moves from
+     * @param day - epoch day of the value
+     * @param value - value for that day
+     */
+    private void updateLivePoint(XYChart.Series<Number, Number> series, List<XYChart.Data<Number, Number>> newPoints, int revisedDay, int day, double value) {
+    	XYChart.Data<Number, Number> lastPoint = null;
+
+    	if (!newPoints.isEmpty())
+    		lastPoint = newPoints.get(newPoints.size() - 1);
+    	else if (!series.getData().isEmpty())
+    		lastPoint = series.getData().get(series.getData().size() - 1);
+
+    	if (lastPoint != null && (lastPoint.getXValue().intValue() == day || lastPoint.getXValue().intValue() == revisedDay)) {
+    		if (lastPoint.getXValue().intValue() != day)
+    			lastPoint.setXValue(day);
+    		lastPoint.setYValue(value);
+    	}
+    	else
+    		newPoints.add(new XYChart.Data<>(day, value));
+    }
+
+    /**
+     * Appends the queued points to a series in a single change.
+     * @param series - series being updated
+     * @param newPoints - points to append
+     * @param isSliding - true to drop as many of the oldest points as are appended
+     */
+    private void appendLivePoints(XYChart.Series<Number, Number> series, List<XYChart.Data<Number, Number>> newPoints, boolean isSliding) {
+    	if (newPoints.isEmpty())
+    		return;
+
+    	series.getData().addAll(newPoints);
+
+    	if (isSliding)
+    		series.getData().remove(0, Math.min(newPoints.size(), series.getData().size() - newPoints.size()));
+    }
+
+    /**
+     * Creates the node marking an intersection in the graph.
+     * Its look is shared by every marker, through the style classes of style.css.
+     * @param isBuy - true for a buy (green), false for a sell (red)
+     * @return the marker node
+     */
+    private static StackPane createIntersectionMarker(boolean isBuy) {
+		StackPane marker = new StackPane();
+		marker.getStyleClass().addAll("intersection-marker", isBuy ? "buy-marker" : "sell-marker");
+
+		return marker;
+    }
+
     /**
      * Adds all recommendations of 2 moving averages to the graph.
      * Green means buy, red means sell.
-     * @param tempIntersectionsSeries - series containing all intersections in the graph
+     * The buy and sell series keep their points and markers, only their positions change.
+     * @param intersections - all intersections in the graph, oldest first
      */
-    private void graphIntersections(XYChart.Series<String, Number> tempIntersectionsSeries) {
+    private void graphIntersections(PriceSeries intersections) {
     	// Store intersection data
     	List<Boolean> intersectionData = currentStock.getIntersectionData();
-    	
-    	// Loops for all data points in the intersections
-		for (int i = 0 ; i < tempIntersectionsSeries.getData().size(); i++) {
-			// Creates a new pane at each intersection
-			StackPane tempPane = new StackPane();
-			tempPane.setPrefWidth(7.5);
-			tempPane.setPrefHeight(7.5);
-			
-			// Create a background fill
-			BackgroundFill greenFill = new BackgroundFill(Color.GREEN, new CornerRadii(3.75), Insets.EMPTY);
-			BackgroundFill redFill = new BackgroundFill(Color.RED, new CornerRadii(3.75), Insets.EMPTY);
-
-			// Set pane color depending on buy or sell
-			if (intersectionData.get(i))
-				tempPane.setBackground(new Background(greenFill));
-			else
-				tempPane.setBackground(new Background(redFill));
-			
-			// Overwrite symbols in the graph
-			tempIntersectionsSeries.getData().get(i).setNode(tempPane);
-			
-			// Add data to correct intersection series
-			if (intersectionData.get(i))
-				buyIntersectionSeries.getData().add(tempIntersectionsSeries.getData().get(i));
-			else
-				sellIntersectionSeries.getData().add(tempIntersectionsSeries.getData().get(i));
+    	int count = Math.min(intersections.size(), intersectionData.size());
+
+    	// Splits the intersections between buys and sells
+    	int[] buyDays = new int[count];
+    	double[] buyPrices = new double[count];
+    	int[] sellDays = new int[count];
+    	double[] sellPrices = new double[count];
+    	int buyCount = 0;
+    	int sellCount = 0;
+
+		for (int i = 0; i < count; i++) {
+			if (intersectionData.get(i)) {
+				buyDays[buyCount] = intersections.getDay(i);
+				buyPrices[buyCount++] = intersections.getClose(i);
+			}
+			else {
+				sellDays[sellCount] = intersections.getDay(i);
+				sellPrices[sellCount++] = intersections.getClose(i);
+			}
 		}
+
+		graphSeries(buyIntersectionBinding, new PriceHistory(buyDays, buyPrices, buyCount), null);
+		graphSeries(sellIntersectionBinding, new PriceHistory(sellDays, sellPrices, sellCount), null);
     }
     
     /**
      * Removes all intersection indicators from the graph.
      */
     private void resetIntersections() {
-    	buyIntersectionSeries.getData().removeAll(buyIntersectionSeries.getData());
-    	sellIntersectionSeries.getData().removeAll(sellIntersectionSeries.getData());
+    	buyIntersectionBinding.clear();
+    	sellIntersectionBinding.clear();
     }
     
     /**
@@ -516,6 +1279,14 @@ public class MainController {
     	movingAverageSeries[3].setName("Moving Average: 200 Days");
     	buyIntersectionSeries.setName("Buy Recommendations");
     	sellIntersectionSeries.setName("Sell Recommendations");
+
+    	// Points are reused from one graph to the next, markers are only created for new points
+    	stockBinding = new SeriesBinding(stockSeries, null);
+    	movingAverageBindings = new SeriesBinding[4];
+    	for (int i = 0; i < 4; i++)
+    		movingAverageBindings[i] = new SeriesBinding(movingAverageSeries[i], null);
+    	buyIntersectionBinding = new SeriesBinding(buyIntersectionSeries, () -> createIntersectionMarker(true));
+    	sellIntersectionBinding = new SeriesBinding(sellIntersectionSeries, () -> createIntersectionMarker(false));
     	
     	// Add all series to graph
     	stockChart.getData().addAll
@@ -586,15 +1357,11 @@ public class MainController {
 	 */
 	private void clearData() {
     	
-    	// Remove current closing prices
-    	if (stockSeries != null && stockSeries.getData().size() > 0)
-    		stockSeries.getData().remove(0, stockSeries.getData().size());
+    	// The closing prices are kept, so that their points are reused by the next timeline
     	
         // Removes current MAs
-        for (XYChart.Series<String, Number> ma : movingAverageSeries) {
-        	if (ma != null && ma.getData() != null && ma.getData().size() > 0)
-        		ma.getData().remove(0, ma.getData().size());
-        }
+        for (SeriesBinding ma : movingAverageBindings)
+        	ma.clear();
         
     	// Resets timeline display checks
     	for (int i = 0; i < isTimeLineDisplayed.length; i++)
@@ -605,8 +1372,7 @@ public class MainController {
         	isMovingAverageSelected[i] = false;
         
         // Removes current intersections
-        if (buyIntersectionSeries != null && buyIntersectionSeries.getData().size() > 0)
-        	buyIntersectionSeries.getData().remove(0, buyIntersectionSeries.getData().size());
+        resetIntersections();
 	}
 
     /**
@@ -629,5 +1395,8 @@ public class MainController {
         
         primaryStage.setScene(loginScene);
         primaryStage.show();
+
+        // prepare the MainView for the next login
+        MainViewLoader.preload();
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import model.MovingAverageInterval;
+import model.Stock;
+import model.SymbolMaster;
+import model.TimeInterval;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares the MainView while the user is still on the LoginView.
+ * The MainView FXML is inflated on the FX thread as soon as it is idle,
+ * and the default index stock is loaded in the background, so that the MainView
+ * is shown with its chart already populated. Each login gets a stock of its own,
+ * only the prices are shared, through the PriceLoader and the PriceStore.
+ * The symbol master searched in the MainView is loaded in the background too.
+ */
+public class MainViewLoader {
+
+    private static final String DEFAULT_STOCK_NAME = "DOW Jones 30";
+    private static final String DEFAULT_STOCK_TICKER = "^DJI";
+
+    private static final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "main-view-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the default stock of the next login
+    private static CompletableFuture<Stock> defaultStock;
+
+    // the preloaded view and its controller, only accessed from the FX thread
+    private static Parent mainView;
+    private static MainController mainController;
+
+    /**
+     * Starts preparing the MainView. Called when the LoginView is shown.
+     */
+    public static void preload() {
+        // the stocks listed in the MainView are indexed first, it is quicker than the download
+        backgroundExecutor.execute(SymbolMaster::getDefault);
+
+        defaultStock = CompletableFuture.supplyAsync(MainViewLoader::loadDefaultStock, backgroundExecutor);
+
+        // runs once the LoginView has been shown and the FX thread is idle
+        Platform.runLater(() -> {
+            if (mainView == null)
+                inflateMainView();
+        });
+    }
+
+    /**
+     * Hands out the preloaded MainView, inflating it now if it is not ready yet.
+     * The view is handed out only once, so preload() must be called again before the next login.
+     *
+     * @return the MainView, with the current user's information filled in
+     */
+    public static Parent takeMainView() {
+        if (mainView == null)
+            inflateMainView();
+
+        Parent view = mainView;
+        MainController controller = mainController;
+        mainView = null;
+        mainController = null;
+
+        if (controller != null)
+            controller.showCurrentUser();
+
+        return view;
+    }
+
+    /**
+     * Inflates the MainView and graphs the default stock as soon as it is downloaded.
+     */
+    private static void inflateMainView() {
+        FXMLLoader loader = new FXMLLoader(MainViewLoader.class.getResource("../view/MainView.fxml"));
+
+        try {
+            mainView = loader.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        MainController controller = loader.getController();
+        mainController = controller;
+
+        defaultStock.thenAccept(stock -> Platform.runLater(() -> controller.showDefaultStock(stock)));
+    }
+
+    /**
+     * Loads the default stock, and runs a throwaway copy of it through the analytics
+     * once so that the code paths are warm by the time the user logs in. The copy
+     * keeps the crossovers it tracked, the stock shown has none selected.
+     *
+     * @return the default stock, on the all-time timeline
+     */
+    private static Stock loadDefaultStock() {
+        Stock warmup = new Stock(DEFAULT_STOCK_NAME, DEFAULT_STOCK_TICKER);
+
+        try {
+            for (TimeInterval timeline : TimeInterval.values()) {
+                warmup.setTimeline(timeline);
+                warmup.getPricesInRange();
+                for (MovingAverageInterval interval : MovingAverageInterval.values())
+                    warmup.getMovingAverage(interval);
+                warmup.getIntersectionsList(MovingAverageInterval.TwentyDay, MovingAverageInterval.FiftyDay);
+            }
+        } catch (RuntimeException e) {
+            // warming is best effort, the stock is still usable (e.g. the download failed)
+        }
+
+        Stock stock = new Stock(DEFAULT_STOCK_NAME, DEFAULT_STOCK_TICKER, warmup.getPrices());
+        stock.setTimeline(TimeInterval.AllTime);
+        return stock;
+    }
+}
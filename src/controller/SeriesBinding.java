@@ -0,0 +1,99 @@
+package controller;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.chart.XYChart;
+import model.PriceHistory;
+import model.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a chart series showing the values of a PriceSeries, keyed by epoch day.
+ *
+ * Graphing new values does not clear the series and reload it: the points already
+ * in the series are reused, only those whose day or value changed are updated, and
+ * the points missing or left over are added or removed in a single change of the list.
+ * Switching timeline or moving average thus fires one list change at most,
+ * and allocates points only for the days the series did not have.
+ */
+class SeriesBinding {
+
+    private final XYChart.Series<Number, Number> series;
+
+    // creates the node of each new point, null for a line without symbols
+    private final Supplier<Node> symbolFactory;
+
+    /**
+     * @param series - series graphed in the chart
+     * @param symbolFactory - creates the node shown at each new point, null to show none
+     */
+    SeriesBinding(XYChart.Series<Number, Number> series, Supplier<Node> symbolFactory) {
+        this.series = series;
+        this.symbolFactory = symbolFactory;
+    }
+
+    /**
+     * Replaces the points of the series with the given values.
+     * @param values - values to graph, oldest first
+     */
+    void bind(PriceSeries values) {
+        ObservableList<XYChart.Data<Number, Number>> data = series.getData();
+        int reusedCount = Math.min(data.size(), values.size());
+
+        // points already in the series take the new values in place
+        for (int i = 0; i < reusedCount; i++) {
+            XYChart.Data<Number, Number> point = data.get(i);
+            int day = values.getDay(i);
+            double value = values.getClose(i);
+
+            if (point.getXValue().intValue() != day)
+                point.setXValue(day);
+            if (point.getYValue().doubleValue() != value)
+                point.setYValue(value);
+        }
+
+        if (values.size() > data.size()) {
+            List<XYChart.Data<Number, Number>> newPoints = new ArrayList<>(values.size() - data.size());
+            for (int i = data.size(); i < values.size(); i++) {
+                XYChart.Data<Number, Number> point = new XYChart.Data<>(values.getDay(i), values.getClose(i));
+                if (symbolFactory != null)
+                    point.setNode(symbolFactory.get());
+                newPoints.add(point);
+            }
+            data.addAll(newPoints);
+        }
+        else if (values.size() < data.size())
+            data.remove(values.size(), data.size());
+    }
+
+    /**
+     * Removes every point of the series in a single change.
+     */
+    void clear() {
+        if (!series.getData().isEmpty())
+            series.getData().clear();
+    }
+
+    /**
+     * @return the values graphed, including the live prices graphed since they were bound, oldest first
+     */
+    PriceSeries getValues() {
+        ObservableList<XYChart.Data<Number, Number>> data = series.getData();
+        int[] days = new int[data.size()];
+        double[] values = new double[data.size()];
+
+        for (int i = 0; i < data.size(); i++) {
+            days[i] = data.get(i).getXValue().intValue();
+            values[i] = data.get(i).getYValue().doubleValue();
+        }
+
+        return new PriceHistory(days, values, data.size());
+    }
+
+    XYChart.Series<Number, Number> getSeries() {
+        return series;
+    }
+}
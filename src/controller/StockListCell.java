@@ -0,0 +1,64 @@
+package controller;
+
+import javafx.scene.Cursor;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.input.KeyCode;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Cell of the lists of stocks, showing a stock's name and graphing it when clicked,
+ * or when Enter or Space is pressed on it (see install).
+ *
+ * A ListView only creates the cells that fit in its height and hands them new
+ * items as it scrolls, so the handlers are set once per cell and only the text
+ * changes with the item.
+ */
+class StockListCell<T> extends ListCell<T> {
+
+    private final Function<T, String> nameOf;
+
+    /**
+     * @param nameOf - gives the text shown for an item
+     * @param onSelect - called with the item of the cell clicked
+     */
+    StockListCell(Function<T, String> nameOf, Consumer<T> onSelect) {
+        this.nameOf = nameOf;
+
+        getStyleClass().add("stock-cell");
+        setMnemonicParsing(false);
+        setCursor(Cursor.HAND);
+        setOnMouseClicked(event -> {
+            if (!isEmpty() && getItem() != null)
+                onSelect.accept(getItem());
+        });
+    }
+
+    /**
+     * Lists items in StockListCells. The arrow keys move the selection without graphing,
+     * so that going through the list does not load every stock on the way, and Enter or Space
+     * graphs the selected item, as they did for the buttons the lists replaced.
+     * @param list - list of stocks
+     * @param nameOf - gives the text shown for an item
+     * @param onSelect - called with the item clicked, or selected when Enter or Space is pressed
+     */
+    static <T> void install(ListView<T> list, Function<T, String> nameOf, Consumer<T> onSelect) {
+        list.setCellFactory(view -> new StockListCell<>(nameOf, onSelect));
+        list.setOnKeyPressed(event -> {
+            T selected = list.getSelectionModel().getSelectedItem();
+            if ((event.getCode() == KeyCode.ENTER || event.getCode() == KeyCode.SPACE) && selected != null) {
+                onSelect.accept(selected);
+                event.consume();
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(T item, boolean empty) {
+        super.updateItem(item, empty);
+
+        setText(empty || item == null ? null : nameOf.apply(item));
+    }
+}
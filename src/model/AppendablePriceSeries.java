@@ -0,0 +1,116 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A PriceSeries that live prices can be appended to, on top of a read-only
+ * history (e.g. a MappedPriceSeries). The history is not copied, only the
+ * appended days are kept in memory.
+ *
+ * Appends only write past the days snapshots count, and revisions of the most
+ * recent day copy the appended closes, so that a snapshot never changes.
+ */
+public class AppendablePriceSeries implements PriceSeries {
+
+    private final PriceSeries history;
+
+    // number of days of the history in use, one less once its last day has been revised
+    private int historySize;
+
+    private int[] appendedDays = new int[16];
+    // replaced instead of written when a day is revised, so that snapshots keep the previous value
+    private volatile double[] appendedCloses = new double[16];
+    // written last, so that snapshot() sees every day it counts
+    private volatile int appendedSize;
+
+    /**
+     * @param history prices before the live ones
+     */
+    public AppendablePriceSeries(PriceSeries history) {
+        this.history = history;
+        this.historySize = history.size();
+    }
+
+    public int size() {
+        return historySize + appendedSize;
+    }
+
+    public int getDay(int index) {
+        return index < historySize ? history.getDay(index) : appendedDays[index - historySize];
+    }
+
+    public double getClose(int index) {
+        return index < historySize ? history.getClose(index) : appendedCloses[index - historySize];
+    }
+
+    /**
+     * Adds a day after the most recent one.
+     *
+     * @param day epoch day, after the most recent day
+     * @param close value of that day
+     */
+    public void append(int day, double close) {
+        if (appendedSize == appendedDays.length) {
+            appendedDays = Arrays.copyOf(appendedDays, appendedSize * 2);
+            appendedCloses = Arrays.copyOf(appendedCloses, appendedSize * 2);
+        }
+
+        appendedDays[appendedSize] = day;
+        appendedCloses[appendedSize] = close;
+        appendedSize++;
+    }
+
+    /**
+     * Revises the value of the most recent day. The appended closes are copied,
+     * as snapshots taken before may still be reading them.
+     *
+     * @param close revised value
+     */
+    public void setLastClose(double close) {
+        if (appendedSize == 0) {
+            // the history is read-only, so its last day moves to the appended ones
+            historySize--;
+            append(history.getDay(historySize), close);
+        }
+        else {
+            double[] revisedCloses = appendedCloses.clone();
+            revisedCloses[appendedSize - 1] = close;
+            appendedCloses = revisedCloses;
+        }
+    }
+
+    /**
+     * Fixes the days appended so far, so that the series can be read from
+     * another thread while live prices keep being appended from this one.
+     *
+     * @return a view of the current days, unaffected by later appends and revisions
+     */
+    public PriceSeries snapshot() {
+        int appendedCount = appendedSize;
+        int historyCount = historySize;
+        int[] days = appendedDays;
+        double[] closes = appendedCloses;
+
+        return new PriceSeries() {
+            public int size() {
+                return historyCount + appendedCount;
+            }
+
+            public int getDay(int index) {
+                return index < historyCount ? history.getDay(index) : days[index - historyCount];
+            }
+
+            public double getClose(int index) {
+                return index < historyCount ? history.getClose(index) : closes[index - historyCount];
+            }
+
+            public void getCloses(int from, int count, double[] destination) {
+                // the part of the history is copied in bulk, then the appended part
+                int historyPart = Math.max(Math.min(historyCount - from, count), 0);
+                if (historyPart > 0)
+                    history.getCloses(from, historyPart, destination);
+                System.arraycopy(closes, from + historyPart - historyCount, destination, historyPart, count - historyPart);
+            }
+        };
+    }
+}
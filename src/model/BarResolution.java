@@ -0,0 +1,48 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Resolution of the prices a Stock is graphed and analysed at:
+ * a point per trading day, per week (monday to sunday) or per calendar month.
+ */
+public enum BarResolution {
+    Daily(1),
+    Weekly(5),
+    Monthly(21);
+
+    // trading days in a bar, on average
+    private final int tradingDays;
+
+    BarResolution(int tradingDays) {
+        this.tradingDays = tradingDays;
+    }
+
+    /**
+     * @param epochDay a day, as the number of days since 1970-01-01
+     * @return a number identifying the bar the day falls in, increasing with the days
+     */
+    public int getPeriod(int epochDay) {
+        switch (this) {
+            case Weekly:
+                // 1970-01-01 is a thursday, so weeks start 3 days before a multiple of 7
+                return Math.floorDiv(epochDay + 3, 7);
+            case Monthly:
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                return date.getYear() * 12 + date.getMonthValue() - 1;
+            default:
+                return epochDay;
+        }
+    }
+
+    /**
+     * Converts a moving average to this resolution, so that the 200 days moving average
+     * of weekly bars covers 40 weeks.
+     *
+     * @param interval the moving average
+     * @return the number of bars it averages, at least 1
+     */
+    public int getBars(MovingAverageInterval interval) {
+        return Math.max(Math.round(interval.getDays() / (float) tradingDays), 1);
+    }
+}
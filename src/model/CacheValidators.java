@@ -0,0 +1,81 @@
+package model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * The ETag and Last-Modified headers a server sent along with a response.
+ * Sent back in a conditional request, they let the server answer 304 Not Modified
+ * without a body if the response would be the same.
+ * Stored in a small properties file next to the prices they describe.
+ */
+public class CacheValidators {
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private final String eTag;
+    private final String lastModified;
+
+    /**
+     * @param eTag ETag header of the response, null if there was none
+     * @param lastModified Last-Modified header of the response, null if there was none
+     */
+    public CacheValidators(String eTag, String lastModified) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param file file written by write()
+     * @return the validators in the file, null if it does not exist
+     * @throws IOException if the file exists but cannot be read
+     */
+    public static CacheValidators read(File file) throws IOException {
+        if (!file.exists())
+            return null;
+
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+
+        return new CacheValidators(properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+    }
+
+    /**
+     * @param file file to write the validators to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        Properties properties = new Properties();
+        if (eTag != null)
+            properties.setProperty(ETAG, eTag);
+        if (lastModified != null)
+            properties.setProperty(LAST_MODIFIED, lastModified);
+
+        try (OutputStream output = new FileOutputStream(file)) {
+            properties.store(output, null);
+        }
+    }
+
+    /**
+     * @return true if there is no validator to send
+     */
+    public boolean isEmpty() {
+        return eTag == null && lastModified == null;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
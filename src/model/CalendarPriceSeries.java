@@ -0,0 +1,201 @@
+package model;
+
+/**
+ * A PriceSeries holding only its values, one per trading day of a TradingCalendar
+ * from a start offset on. The days are read from the calendar, which every stock
+ * loaded with it shares.
+ *
+ * A series that skips some trading days of the calendar also keeps a bitmap of the
+ * days it has, one bit per trading day from its first to its last, and the number
+ * of days it has before each word of the bitmap, to find the position of its days.
+ */
+public class CalendarPriceSeries implements PriceSeries {
+
+    private final TradingCalendar calendar;
+
+    // position in the calendar of the first bit of the bitmap, or of the first day without one
+    private final int origin;
+    // trading days the series has, from the origin, null if it has all of them
+    private final long[] present;
+    // number of days the series has before each word of the bitmap
+    private final int[] presentBefore;
+
+    // number of days the series has before its first day, from the origin
+    private final int first;
+    private final double[] closes;
+    // position in closes of the first day
+    private final int closesFirst;
+    private final int size;
+
+    /**
+     * @param calendar trading days of the series
+     * @param start position in the calendar of the first day
+     * @param closes value of each trading day from the first, without gaps
+     */
+    public CalendarPriceSeries(TradingCalendar calendar, int start, double[] closes) {
+        this(calendar, start, null, null, 0, closes, 0, closes.length);
+    }
+
+    /**
+     * @param calendar trading days of the series
+     * @param start position in the calendar of the first day
+     * @param present bit i is set if the series has the trading day start + i, bit 0 is set
+     * @param closes value of each trading day the series has, from the first
+     */
+    public CalendarPriceSeries(TradingCalendar calendar, int start, long[] present, double[] closes) {
+        this(calendar, start, present, countBefore(present), 0, closes, 0, closes.length);
+    }
+
+    private CalendarPriceSeries(TradingCalendar calendar, int origin, long[] present, int[] presentBefore,
+                                int first, double[] closes, int closesFirst, int size) {
+        this.calendar = calendar;
+        this.origin = origin;
+        this.present = present;
+        this.presentBefore = presentBefore;
+        this.first = first;
+        this.closes = closes;
+        this.closesFirst = closesFirst;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDay(int index) {
+        return calendar.getDay(positionOf(first + index));
+    }
+
+    public double getClose(int index) {
+        return closes[closesFirst + index];
+    }
+
+    public void getCloses(int from, int count, double[] destination) {
+        System.arraycopy(closes, closesFirst + from, destination, 0, count);
+    }
+
+    public void getDays(int from, int count, int[] destination) {
+        if (present == null) {
+            calendar.getDays(origin + first + from, count, destination);
+            return;
+        }
+
+        if (count == 0)
+            return;
+
+        // walks the bitmap from the first day copied
+        int bit = positionOf(first + from) - origin;
+        for (int i = 0; i < count; i++) {
+            destination[i] = calendar.getDay(origin + bit);
+            bit = nextPresent(bit + 1);
+        }
+    }
+
+    /**
+     * Looks the day up in the calendar instead of searching the series.
+     */
+    public int indexAfter(int day) {
+        int position = calendar.indexAfter(day);
+        return Math.min(Math.max(countBeforePosition(position) - first, 0), size);
+    }
+
+    /**
+     * Keeps the view on the calendar, so that it can still be aligned by offset.
+     */
+    public PriceSeries from(int from) {
+        return from == 0 ? this : new CalendarPriceSeries(calendar, origin, present, presentBefore,
+                first + from, closes, closesFirst + from, size - from);
+    }
+
+    /**
+     * @param offset number of days after the first day of this series of the first value
+     * @param values value of each trading day from that one, at most size() - offset of them
+     * @return a series of other values on the same days, e.g. moving averages of these prices
+     */
+    public CalendarPriceSeries withValues(int offset, double[] values) {
+        return new CalendarPriceSeries(calendar, origin, present, presentBefore, first + offset, values, 0, values.length);
+    }
+
+    public TradingCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * @return the position in the calendar of the first day
+     */
+    public int getStart() {
+        return positionOf(first);
+    }
+
+    /**
+     * @return true if the series skips trading days of the calendar, in which case
+     * it cannot be aligned with other series by its start alone
+     */
+    public boolean hasGaps() {
+        return present != null && size > 0 && positionOf(first + size - 1) - positionOf(first) != size - 1;
+    }
+
+    /**
+     * @param rank number of days the series has before a day, from the origin
+     * @return the position of that day in the calendar
+     */
+    private int positionOf(int rank) {
+        if (present == null)
+            return origin + rank;
+
+        // last word with at most rank days before it, which holds the day
+        int low = 0;
+        int high = presentBefore.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (presentBefore[middle] <= rank)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        long word = present[low];
+        for (int skipped = rank - presentBefore[low]; skipped > 0; skipped--)
+            word &= word - 1;
+
+        return origin + low * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @param position position of a day in the calendar
+     * @return the number of days the series has before it, from the origin
+     */
+    private int countBeforePosition(int position) {
+        int bit = position - origin;
+        if (present == null || bit <= 0)
+            return bit;
+        if (bit >= present.length * 64)
+            return presentBefore[present.length - 1] + Long.bitCount(present[present.length - 1]);
+
+        return presentBefore[bit / 64] + Long.bitCount(present[bit / 64] & ((1L << bit) - 1));
+    }
+
+    /**
+     * @return the first bit set from a bit on, past the bitmap if there is none
+     */
+    private int nextPresent(int bit) {
+        int index = bit / 64;
+        if (index >= present.length)
+            return bit;
+
+        long word = present[index] & (-1L << bit);
+        while (word == 0 && ++index < present.length)
+            word = present[index];
+
+        return word == 0 ? present.length * 64 : index * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    private static int[] countBefore(long[] present) {
+        int[] counts = new int[present.length];
+
+        for (int i = 1; i < present.length; i++)
+            counts[i] = counts[i - 1] + Long.bitCount(present[i - 1]);
+
+        return counts;
+    }
+}
@@ -0,0 +1,438 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Correlations between the daily returns of a set of stocks over a TimeInterval.
+ *
+ * The prices are aligned on the trading days of any of the stocks by a merge-join,
+ * a stock without a price on one of those days keeps its previous price.
+ * Stocks stored on a TradingCalendar are aligned by their offsets in it instead,
+ * including stocks loaded before the calendar last grew.
+ * Pairs of stocks are processed in square tiles, so that the returns of the two sides
+ * of a tile stay in the CPU caches, and the tiles are spread across cores.
+ * Stocks with prices over the whole interval are standardized once, so that their
+ * correlation is a single dot product. Pairs with a shorter history are correlated
+ * over the days they have in common.
+ *
+ * computeRolling correlates windows of returns sliding over the interval instead,
+ * one matrix per window, from returns aligned once for all of them.
+ */
+public class CorrelationMatrix {
+
+    // number of stocks on each side of a tile
+    private static final int TILE_SIZE = 32;
+
+    private final String[] tickers;
+    private final int dayCount;
+    private final int lastDay;
+
+    // correlation of each pair, row by row
+    private final double[] correlations;
+
+    private CorrelationMatrix(String[] tickers, int dayCount, int lastDay, double[] correlations) {
+        this.tickers = tickers;
+        this.dayCount = dayCount;
+        this.lastDay = lastDay;
+        this.correlations = correlations;
+    }
+
+    /**
+     * @param tickers ticker of each stock
+     * @param prices all-time prices of each stock, in the same order
+     * @param timeline interval of the returns, up to today
+     * @return the correlations between every pair of stocks
+     */
+    public static CorrelationMatrix compute(String[] tickers, PriceSeries[] prices, TimeInterval timeline) {
+        return compute(tickers, prices, timeline.getStartDay(LocalDate.now()));
+    }
+
+    /**
+     * @param tickers ticker of each stock
+     * @param prices all-time prices of each stock, in the same order
+     * @param startDay epoch day after which the returns are correlated
+     * @return the correlations between every pair of stocks
+     */
+    public static CorrelationMatrix compute(String[] tickers, PriceSeries[] prices, int startDay) {
+        int[][] tradingDays = new int[1][];
+        int[] firstReturns = new int[tickers.length];
+        double[][] returns = alignReturns(prices, startDay, tradingDays, firstReturns);
+        int[] days = tradingDays[0];
+
+        return correlate(tickers, returns, firstReturns, 0, Math.max(days.length - 1, 0), days);
+    }
+
+    /**
+     * Correlates the returns over windows of trading days sliding over the interval,
+     * the prices being aligned once for all of them.
+     *
+     * @param tickers ticker of each stock
+     * @param prices all-time prices of each stock, in the same order
+     * @param timeline interval of the returns, up to today
+     * @param window number of daily returns in each window
+     * @param step number of trading days from a window to the next
+     * @return the correlations over each window, the last one ending on the most recent day, oldest first
+     */
+    public static List<CorrelationMatrix> computeRolling(String[] tickers, PriceSeries[] prices, TimeInterval timeline,
+                                                         int window, int step) {
+        return computeRolling(tickers, prices, timeline.getStartDay(LocalDate.now()), window, step);
+    }
+
+    /**
+     * @param tickers ticker of each stock
+     * @param prices all-time prices of each stock, in the same order
+     * @param startDay epoch day after which the returns are correlated
+     * @param window number of daily returns in each window, at least 2
+     * @param step number of trading days from a window to the next, at least 1
+     * @return the correlations over each window, the last one ending on the most recent day, oldest first
+     */
+    public static List<CorrelationMatrix> computeRolling(String[] tickers, PriceSeries[] prices, int startDay,
+                                                         int window, int step) {
+        if (window < 2 || step < 1)
+            throw new IllegalArgumentException("Invalid window " + window + " or step " + step);
+
+        int[][] tradingDays = new int[1][];
+        int[] firstReturns = new int[tickers.length];
+        double[][] returns = alignReturns(prices, startDay, tradingDays, firstReturns);
+        int returnCount = Math.max(tradingDays[0].length - 1, 0);
+
+        List<CorrelationMatrix> matrices = new ArrayList<>();
+        for (int end = returnCount; end >= window; end -= step)
+            matrices.add(correlate(tickers, returns, firstReturns, end - window, end, tradingDays[0]));
+        Collections.reverse(matrices);
+
+        return matrices;
+    }
+
+    /**
+     * Aligns the prices of the stocks on their trading days, and computes their daily returns.
+     *
+     * @param tradingDays receives the trading days, at index 0
+     * @param firstReturns receives the index of the first return of each stock
+     * @return the returns of each stock, from each trading day to the next
+     */
+    private static double[][] alignReturns(PriceSeries[] prices, int startDay, int[][] tradingDays, int[] firstReturns) {
+        int stockCount = prices.length;
+
+        PriceSeries[] windows = new PriceSeries[stockCount];
+        for (int i = 0; i < stockCount; i++)
+            windows[i] = prices[i].from(prices[i].indexAfter(startDay));
+
+        // position of each stock's first day in the trading days, -1 to join them by day
+        int[] offsets = new int[stockCount];
+        int[] calendar = getSharedTradingDays(windows, offsets);
+        if (calendar == null) {
+            Arrays.fill(offsets, -1);
+            calendar = getTradingDays(windows);
+        }
+        int[] days = calendar;
+        int returnCount = Math.max(calendar.length - 1, 0);
+
+        double[][] returns = new double[stockCount][];
+        IntStream.range(0, stockCount).parallel().forEach(i -> {
+            returns[i] = new double[returnCount];
+            firstReturns[i] = alignReturns(windows[i], days, offsets[i], returns[i]);
+        });
+
+        tradingDays[0] = days;
+        return returns;
+    }
+
+    /**
+     * Correlates every pair of stocks over a range of their returns.
+     *
+     * @param from index of the first return
+     * @param to index after the last return
+     * @param tradingDays trading days the returns are between
+     * @return the correlations over the range
+     */
+    private static CorrelationMatrix correlate(String[] tickers, double[][] returns, int[] firstReturns,
+                                               int from, int to, int[] tradingDays) {
+        int stockCount = tickers.length;
+
+        // stocks with prices over the whole range are standardized once
+        double[][] standardizedReturns = new double[stockCount][];
+        IntStream.range(0, stockCount).parallel().forEach(i -> {
+            if (firstReturns[i] <= from)
+                standardizedReturns[i] = standardize(returns[i], from, to);
+        });
+
+        double[] correlations = new double[stockCount * stockCount];
+        int tileCount = (stockCount + TILE_SIZE - 1) / TILE_SIZE;
+
+        // only the tiles on and above the diagonal, the matrix being symmetric
+        int[] tileRows = new int[tileCount * (tileCount + 1) / 2];
+        int[] tileColumns = new int[tileRows.length];
+        for (int row = 0, tile = 0; row < tileCount; row++) {
+            for (int column = row; column < tileCount; column++, tile++) {
+                tileRows[tile] = row;
+                tileColumns[tile] = column;
+            }
+        }
+
+        IntStream.range(0, tileRows.length).parallel().forEach(tile -> {
+            int rowEnd = Math.min((tileRows[tile] + 1) * TILE_SIZE, stockCount);
+            int columnEnd = Math.min((tileColumns[tile] + 1) * TILE_SIZE, stockCount);
+
+            for (int i = tileRows[tile] * TILE_SIZE; i < rowEnd; i++) {
+                for (int j = Math.max(tileColumns[tile] * TILE_SIZE, i); j < columnEnd; j++) {
+                    double correlation;
+
+                    if (standardizedReturns[i] != null && standardizedReturns[j] != null)
+                        correlation = dotProduct(standardizedReturns[i], standardizedReturns[j]);
+                    else
+                        correlation = correlate(returns[i], returns[j], Math.max(Math.max(firstReturns[i], firstReturns[j]), from), to);
+
+                    correlations[i * stockCount + j] = correlation;
+                    correlations[j * stockCount + i] = correlation;
+                }
+            }
+        });
+
+        // the returns of the range are between to - from + 1 trading days
+        int dayCount = to > from ? to - from + 1 : tradingDays.length;
+        int lastDay = tradingDays.length == 0 ? Integer.MIN_VALUE : tradingDays[Math.min(to, tradingDays.length - 1)];
+
+        return new CorrelationMatrix(tickers.clone(), dayCount, lastDay, correlations);
+    }
+
+    /**
+     * Reads the trading days from the calendars of the stocks, without joining their days.
+     * Calendars only grow, so the largest one holds the days of the others, and the
+     * stocks loaded on earlier calendars are aligned by translating their offsets into it.
+     *
+     * @param offsets receives the position of each stock's first day in the days returned
+     * @return the days of the calendar from the first day of any stock to the last,
+     * null if the stocks are not all on a TradingCalendar, or skip some of its days
+     */
+    private static int[] getSharedTradingDays(PriceSeries[] windows, int[] offsets) {
+        TradingCalendar calendar = null;
+
+        for (PriceSeries window : windows) {
+            if (!(window instanceof CalendarPriceSeries) || ((CalendarPriceSeries) window).hasGaps())
+                return null;
+
+            TradingCalendar windowCalendar = ((CalendarPriceSeries) window).getCalendar();
+            if (calendar == null || windowCalendar.size() > calendar.size())
+                calendar = windowCalendar;
+        }
+
+        int start = Integer.MAX_VALUE;
+        int end = Integer.MIN_VALUE;
+        int[] starts = new int[windows.length];
+
+        for (int i = 0; i < windows.length; i++) {
+            int size = windows[i].size();
+            if (size == 0)
+                continue;
+
+            starts[i] = calendar.indexOf(windows[i].getDay(0));
+
+            // a day added inside the calendar since the stock was loaded is a gap in it
+            if (starts[i] < 0 || calendar.indexOf(windows[i].getDay(size - 1)) - starts[i] != size - 1)
+                return null;
+
+            start = Math.min(start, starts[i]);
+            end = Math.max(end, starts[i] + size);
+        }
+
+        if (calendar == null || start > end)
+            return new int[0];
+
+        for (int i = 0; i < windows.length; i++)
+            offsets[i] = windows[i].size() == 0 ? 0 : starts[i] - start;
+
+        int[] days = new int[end - start];
+        calendar.getDays(start, days.length, days);
+
+        return days;
+    }
+
+    /**
+     * @return every day on which at least one of the stocks traded, in increasing order
+     */
+    private static int[] getTradingDays(PriceSeries[] windows) {
+        int total = 0;
+        for (PriceSeries window : windows)
+            total += window.size();
+
+        // each stock's days are copied after the previous ones, then sorted together
+        int[] allDays = new int[total];
+        int position = 0;
+        for (PriceSeries window : windows) {
+            int[] windowDays = new int[window.size()];
+            window.getDays(0, windowDays.length, windowDays);
+            System.arraycopy(windowDays, 0, allDays, position, windowDays.length);
+            position += windowDays.length;
+        }
+        Arrays.sort(allDays);
+
+        int uniqueCount = 0;
+        for (int i = 0; i < allDays.length; i++) {
+            if (i == 0 || allDays[i] != allDays[i - 1])
+                allDays[uniqueCount++] = allDays[i];
+        }
+
+        return Arrays.copyOf(allDays, uniqueCount);
+    }
+
+    /**
+     * Joins the prices of a stock with the trading days, and computes its log returns between them.
+     *
+     * @param prices prices of the stock over the interval
+     * @param calendar trading days of all the stocks
+     * @param offset position in the calendar of the stock's first day, if its days have no gaps in it, -1 to join them by day
+     * @param returns receives the return from each trading day to the next, 0 before the stock's first price
+     * @return the index of the first return of the stock, returns.length if it has none
+     */
+    private static int alignReturns(PriceSeries prices, int[] calendar, int offset, double[] returns) {
+        int firstReturn = returns.length;
+        double previousPrice = Double.NaN;
+        int position = 0;
+
+        for (int day = 0; day < calendar.length; day++) {
+            double price = previousPrice;
+
+            // both lists of days are sorted, and the calendar holds every day of the stock
+            boolean isTradingDay = offset >= 0 ? day >= offset && position < prices.size()
+                    : position < prices.size() && prices.getDay(position) == calendar[day];
+            if (isTradingDay) {
+                double close = prices.getClose(position++);
+                if (close > 0)
+                    price = close;
+            }
+
+            if (day > 0) {
+                boolean isValid = previousPrice > 0;
+                returns[day - 1] = isValid ? Math.log(price / previousPrice) : 0;
+
+                if (isValid && firstReturn == returns.length)
+                    firstReturn = day - 1;
+            }
+
+            previousPrice = price;
+        }
+
+        return firstReturn;
+    }
+
+    /**
+     * @return the returns of the range minus their mean, divided by their norm, null if they do not vary
+     */
+    private static double[] standardize(double[] returns, int from, int to) {
+        double mean = 0;
+        for (int i = from; i < to; i++)
+            mean += returns[i];
+        mean /= to - from;
+
+        double sumOfSquares = 0;
+        for (int i = from; i < to; i++)
+            sumOfSquares += (returns[i] - mean) * (returns[i] - mean);
+
+        if (!(sumOfSquares > 0))
+            return null;
+
+        double norm = Math.sqrt(sumOfSquares);
+        double[] standardized = new double[to - from];
+        for (int i = from; i < to; i++)
+            standardized[i - from] = (returns[i] - mean) / norm;
+
+        return standardized;
+    }
+
+    private static double dotProduct(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++)
+            sum += a[i] * b[i];
+
+        return sum;
+    }
+
+    /**
+     * @return the Pearson correlation of the returns between two indexes, NaN if it is undefined
+     */
+    private static double correlate(double[] a, double[] b, int from, int to) {
+        int count = to - from;
+        if (count < 2)
+            return Double.NaN;
+
+        double sumA = 0;
+        double sumB = 0;
+        for (int i = from; i < to; i++) {
+            sumA += a[i];
+            sumB += b[i];
+        }
+        double meanA = sumA / count;
+        double meanB = sumB / count;
+
+        double covariance = 0;
+        double varianceA = 0;
+        double varianceB = 0;
+        for (int i = from; i < to; i++) {
+            double deviationA = a[i] - meanA;
+            double deviationB = b[i] - meanB;
+            covariance += deviationA * deviationB;
+            varianceA += deviationA * deviationA;
+            varianceB += deviationB * deviationB;
+        }
+
+        if (!(varianceA > 0) || !(varianceB > 0))
+            return Double.NaN;
+
+        return covariance / Math.sqrt(varianceA * varianceB);
+    }
+
+    /**
+     * @return the number of stocks
+     */
+    public int size() {
+        return tickers.length;
+    }
+
+    public String getTicker(int index) {
+        return tickers[index];
+    }
+
+    /**
+     * @param ticker ticker of a stock
+     * @return its index in the matrix, -1 if it is not in it
+     */
+    public int indexOf(String ticker) {
+        for (int i = 0; i < tickers.length; i++) {
+            if (tickers[i].equals(ticker))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the number of trading days the returns were computed between
+     */
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * @return the last trading day the returns were computed up to, as an epoch day,
+     * Integer.MIN_VALUE if there is none
+     */
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * @param row index of the first stock
+     * @param column index of the second stock
+     * @return the correlation of their daily returns, between -1 and 1,
+     * NaN if they do not have two returns in common or one of them does not vary
+     */
+    public double get(int row, int column) {
+        return correlations[row * tickers.length + column];
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+/**
+ * A crossover detected by a CrossoverAlertEngine on a live price.
+ */
+public class CrossoverAlert {
+
+    private final String ticker;
+    private final String date;
+    private final double price;
+    private final MovingAverageInterval shortInterval;
+    private final MovingAverageInterval longInterval;
+    private final Recommendation signal;
+
+    /**
+     * @param ticker ticker of the stock
+     * @param date trading day of the price, formatted as yyyy-MM-dd
+     * @param price price that caused the crossover
+     * @param shortInterval short term moving average, the same as longInterval for the price itself
+     * @param longInterval long term moving average
+     * @param signal BUY if the short term value crossed above the long term one, SELL if below
+     */
+    CrossoverAlert(String ticker, String date, double price, MovingAverageInterval shortInterval,
+                   MovingAverageInterval longInterval, Recommendation signal) {
+        this.ticker = ticker;
+        this.date = date;
+        this.price = price;
+        this.shortInterval = shortInterval;
+        this.longInterval = longInterval;
+        this.signal = signal;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public MovingAverageInterval getShortInterval() {
+        return shortInterval;
+    }
+
+    public MovingAverageInterval getLongInterval() {
+        return longInterval;
+    }
+
+    public Recommendation getSignal() {
+        return signal;
+    }
+
+    /**
+     * @return true if the price itself crossed the long term moving average
+     */
+    public boolean isPriceCrossover() {
+        return shortInterval == longInterval;
+    }
+
+    public String toString() {
+        String shortName = isPriceCrossover() ? "price" : shortInterval.getDays() + " days";
+        return this.date + " " + this.ticker + " " + this.signal + " - " + shortName
+                + " crossed " + longInterval.getDays() + " days at " + this.price;
+    }
+}
@@ -0,0 +1,223 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches a set of stocks for moving average crossovers as live prices arrive,
+ * not only the stock being graphed.
+ *
+ * Each watched stock keeps a RollingAverage per MovingAverageInterval and a
+ * CrossoverTracker per pair of them, plus one per interval for the price crossing it,
+ * so a price is evaluated in O(1) whatever the length of the history.
+ * The history is only read once, when the stock starts being watched.
+ *
+ * Prices are handled like Stock.appendPrice: a price for the most recent day revises it,
+ * prices for older days are ignored, and a crossover is only reported once per day
+ * however many times the day is revised.
+ */
+public class CrossoverAlertEngine implements PriceFeed.Listener {
+
+    /**
+     * Receives the crossovers detected, on the thread that handed the price to the engine.
+     */
+    public interface Listener {
+        void onAlert(CrossoverAlert alert);
+    }
+
+    // the pairs tracked, by ordinal of MovingAverageInterval, a short equal to the long one is the price
+    private static final int[] SHORT_INTERVALS;
+    private static final int[] LONG_INTERVALS;
+
+    static {
+        int intervalCount = MovingAverageInterval.values().length;
+        int pairCount = intervalCount * (intervalCount + 1) / 2;
+        SHORT_INTERVALS = new int[pairCount];
+        LONG_INTERVALS = new int[pairCount];
+
+        for (int longInterval = 0, pair = 0; longInterval < intervalCount; longInterval++) {
+            for (int shortInterval = 0; shortInterval <= longInterval; shortInterval++, pair++) {
+                SHORT_INTERVALS[pair] = shortInterval;
+                LONG_INTERVALS[pair] = longInterval;
+            }
+        }
+    }
+
+    private final Map<String, WatchedStock> watchedStocks = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching a stock, or restarts from a newer history if it is already watched.
+     *
+     * @param ticker ticker of the stock
+     * @param history all-time prices of the stock, oldest first
+     */
+    public void watch(String ticker, PriceSeries history) {
+        watchedStocks.put(ticker, new WatchedStock(ticker, history));
+    }
+
+    public void unwatch(String ticker) {
+        watchedStocks.remove(ticker);
+    }
+
+    /**
+     * Stops watching every stock not in the given tickers.
+     *
+     * @param tickers tickers of the stocks to keep watching
+     */
+    public void retainOnly(Collection<String> tickers) {
+        watchedStocks.keySet().retainAll(tickers);
+    }
+
+    public void unwatchAll() {
+        watchedStocks.clear();
+    }
+
+    public boolean isWatched(String ticker) {
+        return watchedStocks.containsKey(ticker);
+    }
+
+    /**
+     * Evaluates a live price, and notifies the listeners of the crossovers it causes.
+     * Prices of stocks that are not watched are ignored.
+     *
+     * @param update the live price
+     */
+    public void onPrice(PriceUpdate update) {
+        WatchedStock stock = watchedStocks.get(update.getTicker());
+        if (stock == null)
+            return;
+
+        List<CrossoverAlert> alerts = stock.update(update.getDate(), update.getPrice());
+
+        // listeners are called outside of the stock's lock
+        for (CrossoverAlert alert : alerts) {
+            for (Listener listener : listeners)
+                listener.onAlert(alert);
+        }
+    }
+
+    /**
+     * @return the average of the window of closing prices ending at an index, NaN if there are not enough prices
+     */
+    private static double averageEndingAt(PriceSeries history, int end, int window) {
+        if (end - window + 1 < 0)
+            return Double.NaN;
+
+        double total = 0;
+        for (int i = end - window + 1; i <= end; i++)
+            total += history.getClose(i);
+
+        return total / window;
+    }
+
+    /**
+     * Incremental state of a watched stock
+     */
+    private static class WatchedStock {
+
+        private final String ticker;
+        private final MovingAverageInterval[] intervals = MovingAverageInterval.values();
+        private final RollingAverage[] averages;
+        private final CrossoverTracker[] trackers;
+
+        // crossover of each pair reported on the most recent day, HOLD if none
+        private final Recommendation[] reportedCrossovers;
+        private int mostRecentDay;
+
+        WatchedStock(String ticker, PriceSeries history) {
+            this.ticker = ticker;
+            this.averages = new RollingAverage[intervals.length];
+            this.trackers = new CrossoverTracker[SHORT_INTERVALS.length];
+            this.reportedCrossovers = new Recommendation[SHORT_INTERVALS.length];
+
+            int size = history.size();
+            mostRecentDay = size == 0 ? Integer.MIN_VALUE : history.getDay(size - 1);
+
+            // the averages are fed the most recent days, from the oldest to the newest
+            for (int i = 0; i < intervals.length; i++) {
+                averages[i] = new RollingAverage(intervals[i].getDays());
+                for (int j = Math.max(size - intervals[i].getDays(), 0); j < size; j++)
+                    averages[i].add(history.getClose(j));
+            }
+
+            // the trackers see the day before the most recent one first, so that it can be revised
+            for (int pair = 0; pair < trackers.length; pair++) {
+                trackers[pair] = new CrossoverTracker();
+                reportedCrossovers[pair] = Recommendation.HOLD;
+
+                for (int end = size - 2; end < size; end++) {
+                    if (end < 0)
+                        continue;
+
+                    int longDays = intervals[LONG_INTERVALS[pair]].getDays();
+                    double longValue = averageEndingAt(history, end, longDays);
+                    double shortValue = SHORT_INTERVALS[pair] == LONG_INTERVALS[pair] ? history.getClose(end)
+                            : averageEndingAt(history, end, intervals[SHORT_INTERVALS[pair]].getDays());
+
+                    if (!Double.isNaN(shortValue) && !Double.isNaN(longValue))
+                        reportedCrossovers[pair] = trackers[pair].update(shortValue, longValue);
+                }
+            }
+        }
+
+        /**
+         * @return the crossovers the price causes, empty if none
+         */
+        synchronized List<CrossoverAlert> update(String date, double price) {
+            int day = PriceHistory.parseEpochDay(date);
+            if (day < mostRecentDay)
+                return Collections.emptyList();
+
+            boolean isNewDay = day != mostRecentDay;
+            mostRecentDay = day;
+
+            for (RollingAverage average : averages) {
+                if (isNewDay)
+                    average.add(price);
+                else
+                    average.replaceLast(price);
+            }
+
+            List<CrossoverAlert> alerts = null;
+
+            for (int pair = 0; pair < trackers.length; pair++) {
+                double longValue = averages[LONG_INTERVALS[pair]].getAverage();
+                double shortValue = SHORT_INTERVALS[pair] == LONG_INTERVALS[pair] ? price
+                        : averages[SHORT_INTERVALS[pair]].getAverage();
+
+                if (isNewDay)
+                    reportedCrossovers[pair] = Recommendation.HOLD;
+                if (Double.isNaN(shortValue) || Double.isNaN(longValue))
+                    continue; // not enough days yet
+
+                Recommendation crossover = isNewDay ? trackers[pair].update(shortValue, longValue)
+                        : trackers[pair].revise(shortValue, longValue);
+
+                // a day revised back and forth across the long term value is reported once
+                if (crossover != Recommendation.HOLD && crossover != reportedCrossovers[pair]) {
+                    reportedCrossovers[pair] = crossover;
+                    if (alerts == null)
+                        alerts = new ArrayList<>(2);
+                    alerts.add(new CrossoverAlert(ticker, date, price,
+                            intervals[SHORT_INTERVALS[pair]], intervals[LONG_INTERVALS[pair]], crossover));
+                }
+            }
+
+            return alerts == null ? Collections.emptyList() : alerts;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package model;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Appends every crossover alert to a text file, one line per alert.
+ */
+public class CrossoverAlertLog implements CrossoverAlertEngine.Listener {
+
+    private final String fileName;
+
+    /**
+     * @param fileName file the alerts are appended to, created if it does not exist
+     */
+    public CrossoverAlertLog(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public synchronized void onAlert(CrossoverAlert alert) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName, true))) {
+            bw.append(alert.toString()).append("\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package model;
+
+/**
+ * Tracks whether a short term value is above a long term value
+ * (e.g. two moving averages, or the closing price and a moving average),
+ * and reports the crossover as each new pair of values arrives, in O(1).
+ *
+ * The short term value crossing above the long term one is a BUY,
+ * crossing below is a SELL, and anything else is a HOLD.
+ */
+public class CrossoverTracker {
+
+    // null until the first pair of values is seen
+    private Boolean shortOnTop;
+
+    // state before the last update, so that the last update can be revised
+    private Boolean previousShortOnTop;
+
+    /**
+     * Evaluates a new pair of values.
+     *
+     * @param shortValue newest short term value
+     * @param longValue newest long term value
+     * @return BUY or SELL if the values crossed, HOLD otherwise
+     */
+    public Recommendation update(double shortValue, double longValue) {
+        previousShortOnTop = shortOnTop;
+
+        return evaluate(shortValue, longValue);
+    }
+
+    /**
+     * Re-evaluates the last pair of values, e.g. when the price of the current day is revised.
+     *
+     * @param shortValue revised short term value
+     * @param longValue revised long term value
+     * @return BUY or SELL if the values crossed since the pair before, HOLD otherwise
+     */
+    public Recommendation revise(double shortValue, double longValue) {
+        shortOnTop = previousShortOnTop;
+
+        return evaluate(shortValue, longValue);
+    }
+
+    private Recommendation evaluate(double shortValue, double longValue) {
+        if (shortOnTop == null) {
+            shortOnTop = shortValue > longValue;
+            return Recommendation.HOLD;
+        }
+
+        if (shortOnTop && shortValue < longValue) {
+            shortOnTop = false;
+            return Recommendation.SELL;
+        }
+        if (!shortOnTop && shortValue > longValue) {
+            shortOnTop = true;
+            return Recommendation.BUY;
+        }
+
+        return Recommendation.HOLD;
+    }
+}
@@ -0,0 +1,310 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local store of the indicators computed by Stock, so that a restart reads the
+ * moving averages and crossovers of a stock instead of computing them again.
+ *
+ * There is one file per ticker and set of parameters, e.g. AAPL-ma-Daily-TwoHundredDay.ind,
+ * holding the results along with the fingerprint of the prices they were computed from.
+ * Results whose fingerprint differs from the current prices' are ignored and replaced
+ * once computed again, so the cache never has to be cleared when prices change.
+ *
+ * Layout of a file, big-endian:
+ *   int MAGIC, int FORMAT_VERSION, long fingerprint, int key, int count
+ *   moving averages: count doubles, the day of each being that of the prices
+ *   crossovers: count days, count values, count direction bytes (1 for a buy), oldest first
+ *
+ * Files are read when the indicator is first needed, and written in the background.
+ */
+public class IndicatorCache {
+
+    public static final String EXTENSION = ".ind";
+
+    private static final String DEFAULT_DIRECTORY = "src/resources/indicators";
+
+    private static final int MAGIC = 0x49534943; // "ISIC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    // directory of the cache used by the application, set with -Dinstock.indicatorCache
+    private static final IndicatorCache defaultCache = new IndicatorCache(new File(System.getProperty("instock.indicatorCache", DEFAULT_DIRECTORY)));
+
+    // writes the files, so that computing an indicator does not wait for the disk
+    private static final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "indicator-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File directory;
+
+    /**
+     * @param directory directory holding the indicator files
+     */
+    public IndicatorCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the cache used by the application
+     */
+    public static IndicatorCache getDefault() {
+        return defaultCache;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Waits for the files queued to be written by every cache, e.g. before their directory is removed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void awaitWrites() throws InterruptedException {
+        try {
+            writeExecutor.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Identifies the prices an indicator is computed from: any change to a day or a price,
+     * including a revised most recent price, gives another fingerprint.
+     *
+     * @param prices prices the indicators are computed from
+     * @return a 64-bit hash of the days and prices
+     */
+    public static long fingerprint(PriceSeries prices) {
+        int size = prices.size();
+        int[] days = new int[size];
+        double[] closes = new double[size];
+        prices.getDays(0, size, days);
+        prices.getCloses(0, size, closes);
+
+        long hash = mix(size);
+        for (int i = 0; i < size; i++) {
+            hash = mix(hash ^ days[i]);
+            hash = mix(hash ^ Double.doubleToLongBits(closes[i]));
+        }
+
+        return hash;
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @param resolution resolution of the prices
+     * @param interval moving average
+     * @param fingerprint fingerprint of the prices
+     * @return the moving averages stored for these prices, oldest first, null if there are none
+     */
+    public double[] readMovingAverages(String ticker, BarResolution resolution, MovingAverageInterval interval, long fingerprint) {
+        ByteBuffer buffer = read(getMovingAverageFile(ticker, resolution, interval), fingerprint, interval.getDays());
+        if (buffer == null)
+            return null;
+
+        double[] averages = new double[buffer.getInt()];
+        if (buffer.remaining() != averages.length * Double.BYTES)
+            return null;
+
+        buffer.asDoubleBuffer().get(averages);
+        return averages;
+    }
+
+    /**
+     * Stores moving averages in the background.
+     *
+     * @param ticker ticker of the stock
+     * @param resolution resolution of the prices
+     * @param interval moving average
+     * @param fingerprint fingerprint of the prices they were computed from
+     * @param averages the moving averages, oldest first, not modified afterwards
+     */
+    public void writeMovingAverages(String ticker, BarResolution resolution, MovingAverageInterval interval, long fingerprint, double[] averages) {
+        writeExecutor.execute(() -> {
+            ByteBuffer buffer = header(fingerprint, interval.getDays(), averages.length, averages.length * Double.BYTES);
+            buffer.asDoubleBuffer().put(averages);
+
+            write(getMovingAverageFile(ticker, resolution, interval), buffer);
+        });
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @param resolution resolution of the prices
+     * @param timeline timeline the crossovers are found over
+     * @param startDay day the timeline started after when they were found, as the timeline moves with the days
+     * @param shortMA short moving average
+     * @param longMA long moving average
+     * @param fingerprint fingerprint of the prices
+     * @return the crossovers stored for these prices, null if there are none
+     */
+    public Crossovers readCrossovers(String ticker, BarResolution resolution, TimeInterval timeline, int startDay,
+                                     MovingAverageInterval shortMA, MovingAverageInterval longMA, long fingerprint) {
+        ByteBuffer buffer = read(getCrossoverFile(ticker, resolution, timeline, shortMA, longMA), fingerprint, startDay);
+        if (buffer == null)
+            return null;
+
+        int count = buffer.getInt();
+        if (buffer.remaining() != count * (Integer.BYTES + Double.BYTES + 1))
+            return null;
+
+        int[] days = new int[count];
+        double[] values = new double[count];
+        boolean[] buys = new boolean[count];
+
+        buffer.asIntBuffer().get(days);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        for (int i = 0; i < count; i++)
+            buys[i] = buffer.get() != 0;
+
+        return new Crossovers(days, values, buys);
+    }
+
+    /**
+     * Stores crossovers in the background.
+     *
+     * @param crossovers the crossovers found with these parameters
+     * @see #readCrossovers
+     */
+    public void writeCrossovers(String ticker, BarResolution resolution, TimeInterval timeline, int startDay,
+                                MovingAverageInterval shortMA, MovingAverageInterval longMA, long fingerprint, Crossovers crossovers) {
+        writeExecutor.execute(() -> {
+            int count = crossovers.size();
+            ByteBuffer buffer = header(fingerprint, startDay, count, count * (Integer.BYTES + Double.BYTES + 1));
+
+            buffer.asIntBuffer().put(crossovers.days);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            buffer.asDoubleBuffer().put(crossovers.values);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            for (boolean isBuy : crossovers.buys)
+                buffer.put((byte) (isBuy ? 1 : 0));
+
+            write(getCrossoverFile(ticker, resolution, timeline, shortMA, longMA), buffer);
+        });
+    }
+
+    private File getMovingAverageFile(String ticker, BarResolution resolution, MovingAverageInterval interval) {
+        return new File(directory, ticker + "-ma-" + resolution + "-" + interval + EXTENSION);
+    }
+
+    private File getCrossoverFile(String ticker, BarResolution resolution, TimeInterval timeline,
+                                  MovingAverageInterval shortMA, MovingAverageInterval longMA) {
+        return new File(directory, ticker + "-crossovers-" + resolution + "-" + timeline + "-" + shortMA + "-" + longMA + EXTENSION);
+    }
+
+    /**
+     * @return the file positioned on its count, null if it is missing, unreadable or was written for other prices
+     */
+    private ByteBuffer read(File file, long fingerprint, int key) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                || buffer.getLong() != fingerprint || buffer.getInt() != key)
+            return null;
+
+        return buffer;
+    }
+
+    /**
+     * @return a buffer holding the header, positioned on the payload
+     */
+    private static ByteBuffer header(long fingerprint, int key, int count, int payloadSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putLong(fingerprint);
+        buffer.putInt(key);
+        buffer.putInt(count);
+        return buffer;
+    }
+
+    /**
+     * Replaces a file at once, so that a file is never read half written.
+     */
+    private void write(File file, ByteBuffer buffer) {
+        try {
+            if (!directory.exists() && !directory.mkdirs())
+                throw new IOException("Cannot create the indicator cache " + directory);
+
+            File temporaryFile = File.createTempFile(file.getName() + "-new-", ".tmp", directory);
+            try {
+                Files.write(temporaryFile.toPath(), buffer.array());
+                Files.move(temporaryFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Spreads every bit of a value over the whole hash (the finalizer of SplitMix64)
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Crossovers of two moving averages, oldest first
+     */
+    static class Crossovers {
+
+        private final int[] days;
+        private final double[] values;
+        private final boolean[] buys;
+
+        /**
+         * @param days epoch day of each crossover
+         * @param values value of the short moving average on that day
+         * @param buys true where the short moving average crossed above the long one
+         */
+        Crossovers(int[] days, double[] values, boolean[] buys) {
+            this.days = days;
+            this.values = values;
+            this.buys = buys;
+        }
+
+        int size() {
+            return days.length;
+        }
+
+        int[] getDays() {
+            return days;
+        }
+
+        double[] getValues() {
+            return values;
+        }
+
+        boolean isBuy(int index) {
+            return buys[index];
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package model;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A PriceSeries read directly from a region of a memory-mapped MappedPriceStore.
+ * Nothing is copied to the heap, every access reads the mapped file,
+ * which the operating system shares between all processes mapping it.
+ */
+public class MappedPriceSeries implements PriceSeries {
+
+    private final IntBuffer days;
+    private final DoubleBuffer closes;
+
+    /**
+     * @param days view of the mapped days column
+     * @param closes view of the mapped closes column
+     */
+    MappedPriceSeries(IntBuffer days, DoubleBuffer closes) {
+        this.days = days;
+        this.closes = closes;
+    }
+
+    public int size() {
+        return days.limit();
+    }
+
+    public int getDay(int index) {
+        return days.get(index);
+    }
+
+    public double getClose(int index) {
+        return closes.get(index);
+    }
+
+    public void getCloses(int from, int count, double[] destination) {
+        DoubleBuffer region = closes.duplicate();
+        region.position(from);
+        region.get(destination, 0, count);
+    }
+
+    public void getDays(int from, int count, int[] destination) {
+        IntBuffer region = days.duplicate();
+        region.position(from);
+        region.get(destination, 0, count);
+    }
+}
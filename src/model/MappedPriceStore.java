@@ -0,0 +1,207 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The prices of the whole universe of stocks in a single file, mapped read-only
+ * in memory. Every desktop session and batch job on a host maps the same file,
+ * so the prices live once in the operating system's page cache instead of
+ * being copied on the heap of each JVM. Stocks read their prices straight
+ * from the mapping through MappedPriceSeries.
+ *
+ * The file is written by write(), e.g. from a PriceStore with the
+ * tools.MappedPriceStoreBuilder, and replaced atomically, so that processes
+ * still mapping the previous version keep reading a consistent file.
+ *
+ * Layout (little endian, the native order of the supported platforms):
+ *  int magic, int version, int tickerCount, int reserved
+ *  tickerCount x (16 bytes ticker, int count, int reserved, long dataOffset)
+ *  for each ticker, at dataOffset (8 byte aligned): double closes[count], int days[count]
+ */
+public class MappedPriceStore {
+
+    // name of the universe file in the directory of the PriceStore
+    private static final String DEFAULT_FILE_NAME = "universe.ispm";
+
+    private static final int MAGIC = 0x4D505349; // "ISPM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int TICKER_BYTES = 16;
+    private static final int DIRECTORY_ENTRY_BYTES = 32;
+
+    private static final MappedPriceStore defaultStore = new MappedPriceStore(new File(PriceStore.getDefault().getDirectory(), DEFAULT_FILE_NAME));
+
+    private final File file;
+
+    // series of each ticker in the current mapping, replaced when the file is rewritten
+    private Map<String, MappedPriceSeries> series;
+    private long mappedLastModified;
+
+    /**
+     * @param file the universe file, it does not need to exist yet
+     */
+    public MappedPriceStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the store used by the application
+     */
+    public static MappedPriceStore getDefault() {
+        return defaultStore;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Looks up the prices of a stock, mapping the file on first use
+     * and remapping it if it has been replaced since.
+     *
+     * @param ticker ticker of the stock
+     * @return the prices of the stock, null if the file does not exist or does not hold the stock
+     */
+    public synchronized PriceSeries find(String ticker) {
+        if (!file.exists())
+            return null;
+
+        if (series == null || file.lastModified() != mappedLastModified) {
+            try {
+                map();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        return series.get(ticker);
+    }
+
+    /**
+     * Maps the file read-only and builds the lookup of every ticker's series.
+     */
+    private void map() throws IOException {
+        long lastModified = file.lastModified();
+        MappedByteBuffer mapping;
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // the mapping stays valid once the channel is closed
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapping.getInt(0) != MAGIC || mapping.getInt(4) != VERSION)
+            throw new IOException("Not a mapped price store: " + file);
+
+        int tickerCount = mapping.getInt(8);
+        Map<String, MappedPriceSeries> mappedSeries = new HashMap<>(tickerCount * 2);
+
+        for (int i = 0; i < tickerCount; i++) {
+            int entry = HEADER_BYTES + i * DIRECTORY_ENTRY_BYTES;
+
+            byte[] tickerBytes = new byte[TICKER_BYTES];
+            for (int j = 0; j < TICKER_BYTES; j++)
+                tickerBytes[j] = mapping.get(entry + j);
+            int tickerLength = 0;
+            while (tickerLength < TICKER_BYTES && tickerBytes[tickerLength] != 0)
+                tickerLength++;
+            String ticker = new String(tickerBytes, 0, tickerLength, StandardCharsets.UTF_8);
+
+            int count = mapping.getInt(entry + TICKER_BYTES);
+            int dataOffset = (int) mapping.getLong(entry + TICKER_BYTES + 8);
+
+            mappedSeries.put(ticker, new MappedPriceSeries(
+                    region(mapping, dataOffset + count * 8, count * 4).asIntBuffer(),
+                    region(mapping, dataOffset, count * 8).asDoubleBuffer()));
+        }
+
+        series = mappedSeries;
+        mappedLastModified = lastModified;
+    }
+
+    private static ByteBuffer region(MappedByteBuffer mapping, int offset, int length) {
+        ByteBuffer region = mapping.duplicate();
+        region.position(offset);
+        region.limit(offset + length);
+
+        return region.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the prices of every stock to the file, replacing it atomically.
+     * The file must fit in a single mapping (2 GB), which is over 150 million days.
+     *
+     * @param prices prices of each ticker
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Map<String, ? extends PriceSeries> prices) throws IOException {
+        long length = HEADER_BYTES + (long) prices.size() * DIRECTORY_ENTRY_BYTES;
+        for (PriceSeries each : prices.values())
+            length = align(length + each.size() * 12L);
+
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Too many prices for a single mapping: " + length + " bytes");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(prices.size());
+        buffer.putInt(0);
+
+        int entry = HEADER_BYTES;
+        int dataOffset = (int) align(HEADER_BYTES + (long) prices.size() * DIRECTORY_ENTRY_BYTES);
+        for (Map.Entry<String, ? extends PriceSeries> each : prices.entrySet()) {
+            byte[] tickerBytes = each.getKey().getBytes(StandardCharsets.UTF_8);
+            if (tickerBytes.length > TICKER_BYTES)
+                throw new IOException("Ticker too long: " + each.getKey());
+
+            PriceSeries series = each.getValue();
+            int count = series.size();
+
+            buffer.position(entry);
+            buffer.put(tickerBytes);
+            buffer.position(entry + TICKER_BYTES);
+            buffer.putInt(count);
+            buffer.putInt(0);
+            buffer.putLong(dataOffset);
+
+            for (int i = 0; i < count; i++) {
+                buffer.putDouble(dataOffset + i * 8, series.getClose(i));
+                buffer.putInt(dataOffset + count * 8 + i * 4, series.getDay(i));
+            }
+
+            entry += DIRECTORY_ENTRY_BYTES;
+            dataOffset = (int) align(dataOffset + count * 12L);
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+
+        File temporaryFile = File.createTempFile("universe-new-", ".tmp", directory);
+        try {
+            Files.write(temporaryFile.toPath(), buffer.array());
+            Files.move(temporaryFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Trading days and closing time of the exchange the prices come from, which tell
+ * when the prices of a day are final: once published after the close, they do not
+ * change until the next trading day closes.
+ * Exchange holidays are not known, they are treated as trading days.
+ */
+public class MarketHours {
+
+    public static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+    public static final LocalTime CLOSE = LocalTime.of(16, 0);
+
+    // time after the close by which the provider publishes the prices of the day, set in minutes
+    private static final Duration PUBLICATION_DELAY = Duration.ofMinutes(Long.getLong("instock.refreshAfterClose", 30));
+
+    /**
+     * @param now the current time
+     * @return the most recent time the prices of a trading day were published, not after now
+     */
+    public static Instant lastPublication(Instant now) {
+        LocalDate day = now.minus(PUBLICATION_DELAY).atZone(ZONE).toLocalDate();
+
+        while (!isTradingDay(day) || publication(day).isAfter(now))
+            day = day.minusDays(1);
+
+        return publication(day);
+    }
+
+    /**
+     * @param now the current time
+     * @return the next time the prices of a trading day are published, after now
+     */
+    public static Instant nextPublication(Instant now) {
+        LocalDate day = now.minus(PUBLICATION_DELAY).atZone(ZONE).toLocalDate();
+
+        while (!isTradingDay(day) || !publication(day).isAfter(now))
+            day = day.plusDays(1);
+
+        return publication(day);
+    }
+
+    /**
+     * @param day a day
+     * @return false on saturdays and sundays
+     */
+    public static boolean isTradingDay(LocalDate day) {
+        return day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * @return the time the prices of a trading day are published
+     */
+    private static Instant publication(LocalDate day) {
+        return ZonedDateTime.of(day, CLOSE, ZONE).plus(PUBLICATION_DELAY).toInstant();
+    }
+}
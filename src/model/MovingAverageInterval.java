@@ -1,8 +1,19 @@
 package model;
 
 public enum MovingAverageInterval {
-    TwentyDay,
-    FiftyDay,
-    HundredDay,
-    TwoHundredDay
+    TwentyDay(20),
+    FiftyDay(50),
+    HundredDay(100),
+    TwoHundredDay(200);
+
+    // number of days averaged
+    private final int days;
+
+    MovingAverageInterval(int days) {
+        this.days = days;
+    }
+
+    public int getDays() {
+        return days;
+    }
 }
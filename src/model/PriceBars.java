@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Daily prices resampled into bars of a BarResolution: for every week or month,
+ * the first, highest, lowest and last price of its trading days (open, high, low, close),
+ * dated on its most recent trading day. Only adjusted closes are stored, so the bars
+ * are those of the daily closes.
+ *
+ * As a PriceSeries the bars read as their closes, so moving averages, crossovers and
+ * the chart run on them unchanged. Live prices update the most recent bar in O(1),
+ * or start a new one when a new week or month begins, without resampling the history.
+ */
+public class PriceBars implements PriceSeries {
+
+    private final BarResolution resolution;
+
+    private int[] days;
+    private double[] opens;
+    private double[] highs;
+    private double[] lows;
+    private double[] closes;
+    private int size;
+
+    // high and low of the last bar without its most recent day, so that the day can be revised
+    private double highBeforeLastDay = Double.NEGATIVE_INFINITY;
+    private double lowBeforeLastDay = Double.POSITIVE_INFINITY;
+
+    /**
+     * @param resolution resolution of the bars, Weekly or Monthly
+     */
+    public PriceBars(BarResolution resolution) {
+        this.resolution = resolution;
+        this.days = new int[16];
+        this.opens = new double[16];
+        this.highs = new double[16];
+        this.lows = new double[16];
+        this.closes = new double[16];
+    }
+
+    /**
+     * @param daily daily prices, oldest first
+     * @param resolution resolution of the bars
+     * @return the bars of the prices
+     */
+    public static PriceBars resample(PriceSeries daily, BarResolution resolution) {
+        PriceBars bars = new PriceBars(resolution);
+
+        for (int i = 0; i < daily.size(); i++)
+            bars.add(daily.getDay(i), daily.getClose(i));
+
+        return bars;
+    }
+
+    /**
+     * Adds a daily price to the most recent bar, or starts a new bar if the day is in
+     * a later week or month. A price for the most recent day revises it.
+     *
+     * @param day epoch day, not before the most recent day
+     * @param close price of that day
+     * @return true if the price started a new bar, false if it updated the most recent one
+     */
+    public synchronized boolean add(int day, double close) {
+        int last = size - 1;
+
+        if (size > 0 && day == days[last]) {
+            // revises the most recent day, without the price it had
+            highs[last] = Math.max(highBeforeLastDay, close);
+            lows[last] = Math.min(lowBeforeLastDay, close);
+            if (highBeforeLastDay == Double.NEGATIVE_INFINITY)
+                opens[last] = close;
+            closes[last] = close;
+            return false;
+        }
+
+        if (size > 0 && resolution.getPeriod(day) == resolution.getPeriod(days[last])) {
+            highBeforeLastDay = highs[last];
+            lowBeforeLastDay = lows[last];
+            highs[last] = Math.max(highs[last], close);
+            lows[last] = Math.min(lows[last], close);
+            closes[last] = close;
+            days[last] = day;
+            return false;
+        }
+
+        if (size == days.length) {
+            days = Arrays.copyOf(days, size * 2);
+            opens = Arrays.copyOf(opens, size * 2);
+            highs = Arrays.copyOf(highs, size * 2);
+            lows = Arrays.copyOf(lows, size * 2);
+            closes = Arrays.copyOf(closes, size * 2);
+        }
+
+        days[size] = day;
+        opens[size] = close;
+        highs[size] = close;
+        lows[size] = close;
+        closes[size] = close;
+        highBeforeLastDay = Double.NEGATIVE_INFINITY;
+        lowBeforeLastDay = Double.POSITIVE_INFINITY;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Fixes the bars as they are now, so that they can be read from another thread
+     * while live prices keep updating the most recent one.
+     *
+     * @return a copy of the days and closes of the bars
+     */
+    public synchronized PriceSeries snapshot() {
+        return new PriceHistory(Arrays.copyOf(days, size), Arrays.copyOf(closes, size), size);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param index position of the bar, 0 being the oldest
+     * @return the most recent trading day of the bar, as an epoch day
+     */
+    public synchronized int getDay(int index) {
+        return days[index];
+    }
+
+    /**
+     * @param index position of the bar, 0 being the oldest
+     * @return the price of the bar's most recent trading day
+     */
+    public synchronized double getClose(int index) {
+        return closes[index];
+    }
+
+    public synchronized double getOpen(int index) {
+        return opens[index];
+    }
+
+    public synchronized double getHigh(int index) {
+        return highs[index];
+    }
+
+    public synchronized double getLow(int index) {
+        return lows[index];
+    }
+
+    public BarResolution getResolution() {
+        return resolution;
+    }
+}
@@ -0,0 +1,169 @@
+package model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+/**
+ * Reads live prices from a line oriented source on a background thread.
+ * Each line has the format TICKER,yyyy-MM-dd,PRICE and is handed to the
+ * listener on the reader thread, malformed lines are skipped.
+ *
+ * Two sources are supported:
+ *  socket:host:port - connects to a TCP server pushing prices
+ *  file:path        - follows a file as lines are appended to it (like tail -f)
+ */
+public class PriceFeed {
+
+    /**
+     * Receives the prices read by a PriceFeed. Called on the reader thread,
+     * so implementations must hand the updates over to the thread owning the Stocks.
+     */
+    public interface Listener {
+        void onPrice(PriceUpdate update);
+    }
+
+    // how long to wait for more lines once the end of a followed file is reached
+    private static final long FILE_POLL_MILLIS = 50;
+
+    private final String source;
+    private volatile boolean running;
+    private Thread readerThread;
+    private volatile InputStream input;
+
+    /**
+     * @param source socket:host:port or file:path
+     */
+    public PriceFeed(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Starts reading prices on a background daemon thread.
+     *
+     * @param listener receives every price read
+     */
+    public synchronized void start(Listener listener) {
+        if (running)
+            return;
+
+        running = true;
+        readerThread = new Thread(() -> read(listener), "price-feed");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Stops reading prices and closes the source.
+     */
+    public synchronized void stop() {
+        running = false;
+
+        if (readerThread != null)
+            readerThread.interrupt();
+
+        closeInput();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    private void read(Listener listener) {
+        boolean isFile = source.startsWith("file:");
+        byte[] buffer = new byte[8192];
+        StringBuilder line = new StringBuilder();
+
+        try {
+            InputStream in = open();
+            input = in;
+
+            while (running) {
+                int length = in.read(buffer);
+
+                if (length == -1) {
+                    if (!isFile)
+                        break; // socket closed by the server
+
+                    Thread.sleep(FILE_POLL_MILLIS); // wait for more lines to be appended
+                    continue;
+                }
+
+                for (int i = 0; i < length; i++) {
+                    char c = (char) buffer[i];
+
+                    if (c == '\n') {
+                        PriceUpdate update = parseLine(line);
+                        if (update != null)
+                            listener.onPrice(update);
+                        line.setLength(0);
+                    }
+                    else if (c != '\r') {
+                        line.append(c);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        } catch (IOException e) {
+            if (running)
+                e.printStackTrace();
+        } finally {
+            running = false;
+            closeInput();
+        }
+    }
+
+    private InputStream open() throws IOException {
+        if (source.startsWith("socket:")) {
+            String[] hostPort = source.substring("socket:".length()).split(":");
+            Socket socket = new Socket(hostPort[0], Integer.parseInt(hostPort[1]));
+            return socket.getInputStream();
+        }
+        else if (source.startsWith("file:")) {
+            File file = new File(source.substring("file:".length()));
+            file.createNewFile(); // nothing has been written to it yet
+            InputStream fileInput = new FileInputStream(file);
+            fileInput.skip(file.length()); // only follow the lines appended from now on
+            return fileInput;
+        }
+
+        throw new IOException("Unknown price feed source: " + source);
+    }
+
+    private synchronized void closeInput() {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // already closed
+            }
+            input = null;
+        }
+    }
+
+    /**
+     * Parses a line of the format TICKER,yyyy-MM-dd,PRICE
+     *
+     * @param line line read from the source
+     * @return the price update, or null if the line is malformed
+     */
+    private static PriceUpdate parseLine(CharSequence line) {
+        String[] columns = line.toString().split(",");
+
+        if (columns.length != 3)
+            return null;
+
+        try {
+            return new PriceUpdate(columns[0].trim(), columns[1].trim(), Double.parseDouble(columns[2].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Downloads prices over HTTP with bounded waits:
+ *  - connect and read timeouts on every connection, and a deadline for the whole fetch
+ *  - a limit on the number of connections open at once, shared by every caller
+ *  - a hedged second attempt when the first one is slower than most recent fetches,
+ *    or when it fails, whichever answers first wins and the other is disconnected
+ *
+ * Connections are kept alive and reused by HttpURLConnection's connection cache,
+ * which only takes back connections whose response has been read to the end,
+ * so every response is drained before its stream is closed.
+ *
+ * Responses are requested compressed with gzip or deflate, and decompressed
+ * as they are read. Conditional fetches send the validators of a cached copy,
+ * and the server answers 304 Not Modified without a body if it is still current.
+ */
+public class PriceFetchClient {
+
+    /**
+     * Reads the body of a response, e.g. parses it, as part of the timed fetch.
+     * Hedged attempts may call it concurrently.
+     */
+    public interface ResponseReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Outcome of a conditional fetch
+     */
+    public static class Response<T> {
+
+        private final T value;
+        private final CacheValidators validators;
+
+        private Response(T value, CacheValidators validators) {
+            this.value = value;
+            this.validators = validators;
+        }
+
+        /**
+         * @return true if the cached copy is still current, in which case there is no value
+         */
+        public boolean isNotModified() {
+            return value == null;
+        }
+
+        /**
+         * @return what the reader returned, null if the cached copy is still current
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * @return validators to send in the next conditional fetch, empty if the server sent none
+         */
+        public CacheValidators getValidators() {
+            return validators;
+        }
+    }
+
+    // number of recent fetch latencies the hedging threshold is computed from
+    private static final int LATENCY_WINDOW = 128;
+    // fewer latencies than this are not enough to tell what slow is, so nothing is hedged
+    private static final int MIN_LATENCIES_TO_HEDGE = 20;
+
+    private static final PriceFetchClient defaultClient = new PriceFetchClient(5000, 10000, 20000, 4, 0.95);
+
+    // threads running the attempts, their number is bounded by the permits of each client
+    private static final ExecutorService attemptExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "price-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int deadline;
+    private final double hedgePercentile;
+
+    // one permit per connection that can be open at once
+    private final Semaphore permits;
+
+    // latencies of recent attempts in nanoseconds, as a ring
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+
+    /**
+     * @param connectTimeout milliseconds to wait for a connection to be established
+     * @param readTimeout milliseconds to wait for each read from a connection
+     * @param deadline milliseconds to wait for a whole fetch, including waiting for a permit and hedging
+     * @param maxConnections number of connections open at once
+     * @param hedgePercentile percentile of recent latencies after which a second attempt is started,
+     *                        e.g. 0.95, 0 to never hedge slow attempts
+     */
+    public PriceFetchClient(int connectTimeout, int readTimeout, int deadline, int maxConnections, double hedgePercentile) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.deadline = deadline;
+        this.hedgePercentile = hedgePercentile;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * @return the client used by the application
+     */
+    public static PriceFetchClient getDefault() {
+        return defaultClient;
+    }
+
+    /**
+     * Fetches a URL and reads its response.
+     *
+     * @param url address to fetch
+     * @param reader reads the body of the response
+     * @return what the reader returned for the first successful attempt
+     * @throws SocketTimeoutException if no attempt succeeded before the deadline
+     * @throws IOException if the attempts failed
+     */
+    public <T> T fetch(URL url, ResponseReader<T> reader) throws IOException {
+        return fetch(url, null, reader).getValue();
+    }
+
+    /**
+     * Fetches a URL unless a cached copy of it is still current.
+     *
+     * @param url address to fetch
+     * @param validators validators of the cached copy, null if there is none
+     * @param reader reads the body of the response, it must not return null
+     * @return the response, not modified if the cached copy is still current
+     * @throws SocketTimeoutException if no attempt succeeded before the deadline
+     * @throws IOException if the attempts failed
+     */
+    public <T> Response<T> fetch(URL url, CacheValidators validators, ResponseReader<T> reader) throws IOException {
+        long start = System.nanoTime();
+        long deadlineTime = start + TimeUnit.MILLISECONDS.toNanos(deadline);
+        long hedgeDelay = getHedgeDelay();
+        boolean isSecondAttemptStarted = false;
+
+        List<Attempt<T>> attempts = new ArrayList<>(2);
+        CompletableFuture<Response<T>> result = new CompletableFuture<>();
+        AtomicInteger runningAttempts = new AtomicInteger();
+
+        try {
+            if (!permits.tryAcquire(deadline, TimeUnit.MILLISECONDS))
+                throw new SocketTimeoutException("No connection available within " + deadline + " ms for " + url);
+            attempts.add(startAttempt(url, validators, reader, result, runningAttempts));
+
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= deadlineTime)
+                    throw new SocketTimeoutException("No response within " + deadline + " ms from " + url);
+
+                long wait = isSecondAttemptStarted || hedgeDelay < 0 ? deadlineTime - now
+                        : Math.min(deadlineTime, start + hedgeDelay) - now;
+
+                try {
+                    return result.get(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // slower than most recent fetches, a second attempt may answer first
+                    if (!isSecondAttemptStarted && hedgeDelay >= 0 && System.nanoTime() - start >= hedgeDelay) {
+                        isSecondAttemptStarted = true;
+                        if (permits.tryAcquire())
+                            attempts.add(startAttempt(url, validators, reader, result, runningAttempts));
+                    }
+                } catch (ExecutionException e) {
+                    // every attempt failed, which is retried once while the deadline allows it
+                    if (isSecondAttemptStarted || !permits.tryAcquire(deadlineTime - System.nanoTime(), TimeUnit.NANOSECONDS))
+                        throw asIOException(e.getCause());
+
+                    isSecondAttemptStarted = true;
+                    result = new CompletableFuture<>();
+                    runningAttempts = new AtomicInteger();
+                    attempts.add(startAttempt(url, validators, reader, result, runningAttempts));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        } finally {
+            // attempts still running lost or timed out
+            for (Attempt<T> attempt : attempts)
+                attempt.cancel();
+        }
+    }
+
+    private <T> Attempt<T> startAttempt(URL url, CacheValidators validators, ResponseReader<T> reader,
+            CompletableFuture<Response<T>> result, AtomicInteger runningAttempts) {
+        Attempt<T> attempt = new Attempt<>(url, validators, reader, result, runningAttempts);
+        runningAttempts.incrementAndGet();
+
+        try {
+            attemptExecutor.execute(attempt);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        return attempt;
+    }
+
+    /**
+     * @return the body of the response, decompressed as it is read
+     */
+    private static InputStream decode(HttpURLConnection connection) throws IOException {
+        InputStream body = connection.getInputStream();
+        String encoding = connection.getContentEncoding();
+
+        if ("gzip".equalsIgnoreCase(encoding))
+            return new GZIPInputStream(body, 8192);
+        if ("deflate".equalsIgnoreCase(encoding))
+            return new InflaterInputStream(body);
+
+        return body;
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException)
+            return (IOException) cause;
+
+        return new IOException(cause);
+    }
+
+    /**
+     * @return nanoseconds after which a slow attempt is hedged, -1 to not hedge
+     */
+    private synchronized long getHedgeDelay() {
+        int count = Math.min(latencyCount, LATENCY_WINDOW);
+        if (hedgePercentile <= 0 || count < MIN_LATENCIES_TO_HEDGE)
+            return -1;
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        return sorted[Math.min((int) (hedgePercentile * count), count - 1)];
+    }
+
+    private synchronized void recordLatency(long latency) {
+        latencies[latencyCount % LATENCY_WINDOW] = latency;
+        latencyCount++;
+    }
+
+    /**
+     * A single connection to the URL, completing the result of the fetch
+     * when it succeeds, or when it is the last running attempt to fail.
+     */
+    private class Attempt<T> implements Runnable {
+
+        private final URL url;
+        private final CacheValidators validators;
+        private final ResponseReader<T> reader;
+        private final CompletableFuture<Response<T>> result;
+        private final AtomicInteger runningAttempts;
+
+        private volatile HttpURLConnection connection;
+        private volatile long start;
+        private volatile boolean isDone;
+        private volatile boolean isCancelled;
+
+        Attempt(URL url, CacheValidators validators, ResponseReader<T> reader,
+                CompletableFuture<Response<T>> result, AtomicInteger runningAttempts) {
+            this.url = url;
+            this.validators = validators;
+            this.reader = reader;
+            this.result = result;
+            this.runningAttempts = runningAttempts;
+        }
+
+        public void run() {
+            start = System.nanoTime();
+
+            try {
+                if (isCancelled)
+                    throw new IOException("Cancelled fetch of " + url);
+
+                connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(connectTimeout);
+                connection.setReadTimeout(readTimeout);
+                connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+                if (validators != null && validators.getETag() != null)
+                    connection.setRequestProperty("If-None-Match", validators.getETag());
+                if (validators != null && validators.getLastModified() != null)
+                    connection.setRequestProperty("If-Modified-Since", validators.getLastModified());
+                if (isCancelled)
+                    throw new IOException("Cancelled fetch of " + url);
+
+                int status = connection.getResponseCode();
+                Response<T> response;
+
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                    connection.getInputStream().close();
+                    response = new Response<>(null, validators);
+                }
+                else if (status == HttpURLConnection.HTTP_OK) {
+                    try (InputStream body = decode(connection)) {
+                        T value = reader.read(body);
+
+                        // the connection is only reused once the response has been read to the end
+                        byte[] rest = new byte[4096];
+                        while (body.read(rest) != -1) {
+                        }
+
+                        response = new Response<>(value, new CacheValidators(
+                                connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified")));
+                    }
+                }
+                else
+                    throw new IOException("HTTP " + status + " from " + url);
+
+                // done before the result wakes the fetch up, so that cancelling the attempts
+                // leaves the connection of this one alive to be reused
+                isDone = true;
+                recordLatency(System.nanoTime() - start);
+                result.complete(response);
+            } catch (Exception e) {
+                if (runningAttempts.decrementAndGet() == 0)
+                    result.completeExceptionally(e);
+            } finally {
+                isDone = true;
+                permits.release();
+            }
+        }
+
+        /**
+         * Disconnects the attempt if it is still running. The time it ran is recorded as
+         * its latency, which it took at least, so that only counting the attempts that
+         * answered does not make the hedging threshold lower and lower.
+         */
+        void cancel() {
+            isCancelled = true;
+
+            HttpURLConnection runningConnection = connection;
+            if (runningConnection != null && !isDone) {
+                recordLatency(System.nanoTime() - start);
+                runningConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * The daily adjusted closing prices of a stock, stored as two primitive columns
+ * in chronological order (oldest first). Days are stored as epoch days
+ * (days since 1970-01-01), which is what the compressed price files encode.
+ * Also used for series derived from the prices, such as moving averages.
+ */
+public class PriceHistory implements PriceSeries {
+
+    private final int[] days;
+    private final double[] closes;
+    private final int size;
+
+    /**
+     * @param days epoch day of each price, in increasing order
+     * @param closes adjusted closing price of each day
+     * @param size number of days used in the arrays
+     */
+    public PriceHistory(int[] days, double[] closes, int size) {
+        this.days = days;
+        this.closes = closes;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index position of the day, 0 being the oldest
+     * @return the epoch day at that position
+     */
+    public int getDay(int index) {
+        return days[index];
+    }
+
+    /**
+     * @param index position of the day, 0 being the oldest
+     * @return the adjusted closing price at that position
+     */
+    public double getClose(int index) {
+        return closes[index];
+    }
+
+    public void getCloses(int from, int count, double[] destination) {
+        System.arraycopy(closes, from, destination, 0, count);
+    }
+
+    public void getDays(int from, int count, int[] destination) {
+        System.arraycopy(days, from, destination, 0, count);
+    }
+
+    /**
+     * Reads a CSV in the layout served by the price provider:
+     * Date,Open,High,Low,Close,Volume,Adj Close
+     * with a header line, and rows from the most recent to the oldest.
+     * Only the date and the adjusted close are kept.
+     *
+     * @param reader reader positioned at the header line
+     * @return the prices in chronological order
+     * @throws IOException if the CSV cannot be read
+     */
+    public static PriceHistory fromCsv(BufferedReader reader) throws IOException {
+        int[] days = new int[4096];
+        double[] closes = new double[4096];
+        int size = 0;
+
+        reader.readLine(); // skip first line
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty())
+                continue;
+
+            String[] columns = line.split(",");
+
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+            days[size] = parseEpochDay(columns[0]);
+            closes[size] = Double.parseDouble(columns[6]);
+            size++;
+        }
+
+        // rows are the most recent first
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int day = days[i];
+            days[i] = days[j];
+            days[j] = day;
+
+            double close = closes[i];
+            closes[i] = closes[j];
+            closes[j] = close;
+        }
+
+        return new PriceHistory(days, closes, size);
+    }
+
+    /**
+     * Parses a date formatted as yyyy-MM-dd
+     *
+     * @param date the date
+     * @return the number of days since 1970-01-01
+     */
+    public static int parseEpochDay(CharSequence date) {
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    /**
+     * Formats an epoch day as yyyy-MM-dd
+     *
+     * @param epochDay number of days since 1970-01-01
+     * @return the formatted date
+     */
+    public static String formatEpochDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException("Invalid date: " + text);
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+}
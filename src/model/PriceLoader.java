@@ -0,0 +1,86 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the prices of the same stock.
+ * The first caller for a ticker runs the load, callers arriving while it is
+ * in flight wait for it and receive the same prices instead of downloading
+ * and parsing them again. Once the load completes the next caller loads afresh,
+ * so nothing is cached here beyond the duration of a load.
+ *
+ * Refreshes are coalesced separately: a load may return stored prices, so a
+ * refresh never waits for one, only for a refresh of the same stock.
+ *
+ * Sharing the result is safe since price series are never modified once loaded,
+ * live prices are appended on top of them by AppendablePriceSeries.
+ */
+public class PriceLoader {
+
+    private static final PriceLoader defaultLoader = new PriceLoader();
+
+    // loads in flight, by ticker
+    private final ConcurrentHashMap<String, CompletableFuture<PriceSeries>> loads = new ConcurrentHashMap<>();
+    // refreshes in flight, by ticker
+    private final ConcurrentHashMap<String, CompletableFuture<PriceSeries>> refreshes = new ConcurrentHashMap<>();
+
+    /**
+     * @return the loader used by the application
+     */
+    public static PriceLoader getDefault() {
+        return defaultLoader;
+    }
+
+    /**
+     * Loads the prices of a stock, or waits for the load already in flight for it.
+     *
+     * @param ticker ticker of the stock
+     * @param load loads the prices if no other caller is loading them
+     * @return the prices, shared with every concurrent caller
+     */
+    public PriceSeries load(String ticker, Supplier<PriceSeries> load) {
+        return load(loads, ticker, load);
+    }
+
+    /**
+     * Refreshes the prices of a stock, or waits for the refresh already in flight for it.
+     * A load in flight is not waited for, since it may not download the prices.
+     *
+     * @param ticker ticker of the stock
+     * @param refresh downloads the prices again if no other caller is refreshing them
+     * @return the prices, shared with every concurrent refresh
+     */
+    public PriceSeries refresh(String ticker, Supplier<PriceSeries> refresh) {
+        return load(refreshes, ticker, refresh);
+    }
+
+    private static PriceSeries load(ConcurrentHashMap<String, CompletableFuture<PriceSeries>> loads,
+                                    String ticker, Supplier<PriceSeries> load) {
+        CompletableFuture<PriceSeries> ownLoad = new CompletableFuture<>();
+        CompletableFuture<PriceSeries> inFlight = loads.putIfAbsent(ticker, ownLoad);
+
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+
+        try {
+            PriceSeries prices = load.get();
+            ownLoad.complete(prices);
+            return prices;
+        } catch (RuntimeException | Error e) {
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(ticker, ownLoad);
+        }
+    }
+}
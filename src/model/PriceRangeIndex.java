@@ -0,0 +1,261 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Answers the highest and lowest price and the largest drawdown over any
+ * range of days of a PriceSeries without scanning the range.
+ *
+ * The extremes come from sparse tables: for every day and every power of two,
+ * the position of the highest and lowest price of the days starting there. Any range
+ * is covered by two such blocks, possibly overlapping, so an extreme is answered in O(1).
+ *
+ * A drawdown depends on the order of the days (the peak must come before the trough),
+ * so overlapping blocks cannot be combined. Drawdowns are answered in O(log n) from
+ * a segment tree whose nodes hold the highest and lowest price of their days and the
+ * largest drawdown within them: across two adjacent nodes, the largest drawdown is
+ * within one of them, or from the highest price of the first to the lowest of the second.
+ *
+ * Building the index is O(n log n), it is built once per series and queried for every
+ * TimeInterval (see PriceStatistics). Live prices keep it up to date in O(log n) per price:
+ * a new day only adds the blocks ending on it, one per level, and revising the last day
+ * only changes those blocks and the nodes above its leaf. The arrays have room for more
+ * days, and are doubled when they are full, as is the segment tree.
+ *
+ * Not thread safe, Stock only appends and queries it while holding its lock.
+ */
+public class PriceRangeIndex {
+
+    private double[] closes;
+    private int size;
+
+    // position of the highest and lowest price of the 2^level days from each day, by level
+    private int[][] highs;
+    private int[][] lows;
+
+    // segment tree over the days padded to a power of two, node 1 being the root
+    private int leafCount;
+    private double[] nodeHighs;
+    private double[] nodeLows;
+    private double[] nodeDrawdowns;
+
+    /**
+     * @param prices prices to index, oldest first
+     */
+    public PriceRangeIndex(PriceSeries prices) {
+        size = prices.size();
+        closes = new double[Math.max(size, 1)];
+        prices.getCloses(0, size, closes);
+
+        int levels = size == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(size);
+        highs = new int[levels][];
+        lows = new int[levels][];
+
+        highs[0] = new int[closes.length];
+        lows[0] = new int[closes.length];
+        for (int i = 0; i < size; i++) {
+            highs[0][i] = i;
+            lows[0][i] = i;
+        }
+
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int count = size - (1 << level) + 1;
+            int[] previousHighs = highs[level - 1];
+            int[] previousLows = lows[level - 1];
+            int[] levelHighs = highs[level] = new int[closes.length];
+            int[] levelLows = lows[level] = new int[closes.length];
+
+            for (int i = 0; i < count; i++) {
+                levelHighs[i] = higher(previousHighs[i], previousHighs[i + half]);
+                levelLows[i] = lower(previousLows[i], previousLows[i + half]);
+            }
+        }
+
+        buildTree(Integer.highestOneBit(Math.max(size - 1, 1)) << 1);
+    }
+
+    /**
+     * Indexes the price of a new day, after every day indexed.
+     *
+     * @param close price of the day
+     */
+    public void append(double close) {
+        if (size == closes.length)
+            grow();
+
+        closes[size++] = close;
+
+        // a new level starts once there are enough days for its first block
+        int levels = 32 - Integer.numberOfLeadingZeros(size);
+        if (levels > highs.length) {
+            highs = Arrays.copyOf(highs, levels);
+            lows = Arrays.copyOf(lows, levels);
+            highs[levels - 1] = new int[closes.length];
+            lows[levels - 1] = new int[closes.length];
+        }
+
+        updateLastDay();
+    }
+
+    /**
+     * Revises the price of the last day indexed.
+     *
+     * @param close new price of the day
+     */
+    public void setLastClose(double close) {
+        closes[size - 1] = close;
+
+        updateLastDay();
+    }
+
+    /**
+     * Updates the blocks ending on the last day, then its leaf and the nodes above it,
+     * doubling the tree first if the day is past its leaves.
+     */
+    private void updateLastDay() {
+        int last = size - 1;
+
+        highs[0][last] = last;
+        lows[0][last] = last;
+        for (int level = 1; level < highs.length; level++) {
+            int half = 1 << (level - 1);
+            int block = size - (1 << level);
+            highs[level][block] = higher(highs[level - 1][block], highs[level - 1][block + half]);
+            lows[level][block] = lower(lows[level - 1][block], lows[level - 1][block + half]);
+        }
+
+        if (last >= leafCount) {
+            buildTree(leafCount << 1);
+            return;
+        }
+
+        int node = leafCount + last;
+        nodeHighs[node] = closes[last];
+        nodeLows[node] = closes[last];
+        for (node >>= 1; node > 0; node >>= 1)
+            updateNode(node);
+    }
+
+    /**
+     * Doubles the room for days of the prices and of every level
+     */
+    private void grow() {
+        int capacity = closes.length * 2;
+
+        closes = Arrays.copyOf(closes, capacity);
+        for (int level = 0; level < highs.length; level++) {
+            highs[level] = Arrays.copyOf(highs[level], capacity);
+            lows[level] = Arrays.copyOf(lows[level], capacity);
+        }
+    }
+
+    /**
+     * Builds the segment tree over the days indexed
+     *
+     * @param leaves number of leaves, a power of two at least the number of days
+     */
+    private void buildTree(int leaves) {
+        leafCount = leaves;
+        nodeHighs = new double[2 * leafCount];
+        nodeLows = new double[2 * leafCount];
+        nodeDrawdowns = new double[2 * leafCount];
+
+        for (int i = 0; i < leafCount; i++) {
+            nodeHighs[leafCount + i] = i < size ? closes[i] : Double.NEGATIVE_INFINITY;
+            nodeLows[leafCount + i] = i < size ? closes[i] : Double.POSITIVE_INFINITY;
+        }
+        for (int node = leafCount - 1; node > 0; node--)
+            updateNode(node);
+    }
+
+    private void updateNode(int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        nodeHighs[node] = Math.max(nodeHighs[left], nodeHighs[right]);
+        nodeLows[node] = Math.min(nodeLows[left], nodeLows[right]);
+        nodeDrawdowns[node] = Math.max(Math.max(nodeDrawdowns[left], nodeDrawdowns[right]),
+                drawdown(nodeHighs[left], nodeLows[right]));
+    }
+
+    /**
+     * @return the number of days indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param from position of the first day of the range
+     * @param to position of the last day of the range, included
+     * @return the position of the highest price of the range, the earliest if it is reached several times
+     */
+    public int indexOfHigh(int from, int to) {
+        int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+
+        return higher(highs[level][from], highs[level][to - (1 << level) + 1]);
+    }
+
+    /**
+     * @param from position of the first day of the range
+     * @param to position of the last day of the range, included
+     * @return the position of the lowest price of the range, the earliest if it is reached several times
+     */
+    public int indexOfLow(int from, int to) {
+        int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+
+        return lower(lows[level][from], lows[level][to - (1 << level) + 1]);
+    }
+
+    /**
+     * @param from position of the first day of the range
+     * @param to position of the last day of the range, included
+     * @return the largest fall from a price to a later one within the range,
+     * as a fraction of the higher price (0.25 for a fall of 25%), 0 if prices only rose
+     */
+    public double maxDrawdown(int from, int to) {
+        // the nodes covering the range from the left, and from the right, combined in the order of the days
+        double leftHigh = Double.NEGATIVE_INFINITY;
+        double leftDrawdown = 0;
+        double rightLow = Double.POSITIVE_INFINITY;
+        double rightDrawdown = 0;
+
+        for (int low = from + leafCount, high = to + leafCount + 1; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                leftDrawdown = Math.max(Math.max(leftDrawdown, nodeDrawdowns[low]), drawdown(leftHigh, nodeLows[low]));
+                leftHigh = Math.max(leftHigh, nodeHighs[low]);
+                low++;
+            }
+            if ((high & 1) == 1) {
+                high--;
+                rightDrawdown = Math.max(Math.max(nodeDrawdowns[high], rightDrawdown), drawdown(nodeHighs[high], rightLow));
+                rightLow = Math.min(nodeLows[high], rightLow);
+            }
+        }
+
+        return Math.max(Math.max(leftDrawdown, rightDrawdown), drawdown(leftHigh, rightLow));
+    }
+
+    /**
+     * @param index position of a day
+     * @return the price of that day
+     */
+    public double getClose(int index) {
+        return closes[index];
+    }
+
+    private int higher(int a, int b) {
+        return closes[b] > closes[a] ? b : a;
+    }
+
+    private int lower(int a, int b) {
+        return closes[b] < closes[a] ? b : a;
+    }
+
+    /**
+     * @return the fall from a peak to a later trough, 0 if there is none
+     */
+    private static double drawdown(double peak, double trough) {
+        return peak > 0 && trough < peak ? 1 - trough / peak : 0;
+    }
+}
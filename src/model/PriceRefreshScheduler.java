@@ -0,0 +1,215 @@
+package model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the prices of every stored stock once the prices of a trading day are
+ * published (see MarketHours), so that the next morning stocks are graphed from the
+ * PriceStore and the IndicatorCache without waiting on the price provider.
+ *
+ * The priority stocks, the user's recently viewed ones, are refreshed first and in place,
+ * in their order. Every other stock of the PriceStore follows. Refreshes run on a bounded
+ * pool of workers, each waiting a random jitter before its download, so that the provider
+ * is not sent a burst of requests.
+ *
+ * Stocks stored after the publication are not downloaded again, so prices published while
+ * the application was closed, or a run it was closed during, are refreshed at the next start.
+ */
+public class PriceRefreshScheduler {
+
+    /**
+     * Receives the stocks refreshed in place, on the worker that refreshed them.
+     */
+    public interface Listener {
+        void onRefresh(Stock stock);
+    }
+
+    private static final PriceRefreshScheduler defaultScheduler = new PriceRefreshScheduler(PriceStore.getDefault(),
+            Integer.getInteger("instock.refreshWorkers", 4), Duration.ofMillis(Long.getLong("instock.refreshJitter", 2000)));
+
+    // priority of the stocks that are only in the store, after every priority stock
+    private static final int STORED_PRIORITY = Integer.MAX_VALUE;
+
+    private final PriceStore store;
+    private final int workerCount;
+    private final long maxJitterMillis;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // replaced as a whole, so that it is read from the timer while the user views other stocks
+    private volatile List<Stock> priorityStocks = Collections.emptyList();
+
+    // orders refreshes of the same priority by the time they were queued
+    private final AtomicLong sequence = new AtomicLong();
+
+    // null while stopped
+    private ScheduledExecutorService timer;
+    private ThreadPoolExecutor workers;
+
+    /**
+     * @param store store of the stocks to refresh
+     * @param workerCount number of stocks refreshed at the same time
+     * @param maxJitter longest wait of a worker before a download
+     */
+    public PriceRefreshScheduler(PriceStore store, int workerCount, Duration maxJitter) {
+        this.store = store;
+        this.workerCount = workerCount;
+        this.maxJitterMillis = maxJitter.toMillis();
+    }
+
+    /**
+     * @return the scheduler used by the application
+     */
+    public static PriceRefreshScheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param stocks stocks to refresh first, in place, the most important first
+     */
+    public void setPriorityStocks(List<Stock> stocks) {
+        priorityStocks = new ArrayList<>(stocks);
+    }
+
+    /**
+     * Refreshes the stocks now if prices were published since they were stored,
+     * then every time prices are published until stopped.
+     */
+    public synchronized void start() {
+        if (timer != null)
+            return;
+
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-refresh-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "price-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        timer.execute(this::refreshAll);
+    }
+
+    /**
+     * Stops refreshing, abandoning the refreshes queued
+     */
+    public synchronized void stop() {
+        if (timer == null)
+            return;
+
+        timer.shutdownNow();
+        workers.shutdownNow();
+        timer = null;
+        workers = null;
+    }
+
+    /**
+     * Queues a refresh of every stock, then schedules the next run after the next publication.
+     */
+    private synchronized void refreshAll() {
+        if (timer == null)
+            return;
+
+        Instant publication = MarketHours.lastPublication(Instant.now());
+        Set<String> queuedTickers = new HashSet<>();
+
+        int priority = 0;
+        for (Stock stock : priorityStocks) {
+            if (queuedTickers.add(stock.getTicker()))
+                workers.execute(new Refresh(stock, stock.getTicker(), priority++, publication));
+        }
+
+        for (String ticker : store.getTickers()) {
+            if (queuedTickers.add(ticker))
+                workers.execute(new Refresh(null, ticker, STORED_PRIORITY, publication));
+        }
+
+        long delay = MarketHours.nextPublication(Instant.now()).toEpochMilli() - System.currentTimeMillis();
+        timer.schedule(this::refreshAll, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refresh of a stock, queued by priority
+     */
+    private class Refresh implements Runnable, Comparable<Refresh> {
+
+        private final Stock stock;
+        private final String ticker;
+        private final int priority;
+        private final long order = sequence.getAndIncrement();
+        private final Instant publication;
+
+        /**
+         * @param stock stock to refresh in place, null if it is only stored
+         * @param ticker ticker of the stock
+         * @param priority lower first
+         * @param publication publication the prices must be stored after
+         */
+        Refresh(Stock stock, String ticker, int priority, Instant publication) {
+            this.stock = stock;
+            this.ticker = ticker;
+            this.priority = priority;
+            this.publication = publication;
+        }
+
+        @Override
+        public void run() {
+            // already refreshed, e.g. by a run the application was closed during
+            if (store.getFile(ticker).lastModified() >= publication.toEpochMilli()
+                    && (stock == null || stock.getPrices().size() > 0))
+                return;
+
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(maxJitterMillis + 1));
+            } catch (InterruptedException e) {
+                return; // stopped
+            }
+
+            Stock refreshedStock = stock;
+            if (refreshedStock == null) {
+                refreshedStock = new Stock();
+                refreshedStock.setName(ticker);
+                refreshedStock.setTicker(ticker);
+            }
+
+            try {
+                if (refreshedStock.refresh() && stock != null) {
+                    for (Listener listener : listeners)
+                        listener.onRefresh(stock);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public int compareTo(Refresh other) {
+            return priority != other.priority ? Integer.compare(priority, other.priority) : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package model;
+
+/**
+ * Daily values of a stock in chronological order (index 0 is the oldest day).
+ * Implemented by in-memory columns (PriceHistory), by series appended to
+ * from a live feed (AppendablePriceSeries), and by columns read directly
+ * from a memory-mapped file (MappedPriceSeries).
+ */
+public interface PriceSeries {
+
+    /**
+     * @return the number of days in the series
+     */
+    int size();
+
+    /**
+     * @param index position of the day, 0 being the oldest
+     * @return the day at that position, as the number of days since 1970-01-01
+     */
+    int getDay(int index);
+
+    /**
+     * @param index position of the day, 0 being the oldest
+     * @return the value at that position
+     */
+    double getClose(int index);
+
+    /**
+     * Copies the values of consecutive days, e.g. for the SeriesKernels.
+     *
+     * @param from position of the first day
+     * @param count number of days
+     * @param destination receives the values, from index 0
+     */
+    default void getCloses(int from, int count, double[] destination) {
+        for (int i = 0; i < count; i++)
+            destination[i] = getClose(from + i);
+    }
+
+    /**
+     * Copies consecutive days.
+     *
+     * @param from position of the first day
+     * @param count number of days
+     * @param destination receives the days, from index 0
+     */
+    default void getDays(int from, int count, int[] destination) {
+        for (int i = 0; i < count; i++)
+            destination[i] = getDay(from + i);
+    }
+
+    /**
+     * Finds the first day after a given day, by binary search.
+     *
+     * @param day epoch day
+     * @return the index of the first day strictly after it, size() if there is none
+     */
+    default int indexAfter(int day) {
+        int low = 0;
+        int high = size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getDay(middle) <= day)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    /**
+     * @param from index of the first day to keep
+     * @return a view of the days from that index to the most recent, without copying them
+     */
+    default PriceSeries from(int from) {
+        if (from == 0)
+            return this;
+
+        PriceSeries series = this;
+        return new PriceSeries() {
+            public int size() {
+                return series.size() - from;
+            }
+
+            public int getDay(int index) {
+                return series.getDay(from + index);
+            }
+
+            public double getClose(int index) {
+                return series.getClose(from + index);
+            }
+
+            public void getCloses(int start, int count, double[] destination) {
+                series.getCloses(from + start, count, destination);
+            }
+
+            public void getDays(int start, int count, int[] destination) {
+                series.getDays(from + start, count, destination);
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Highs, lows and drawdown of a stock over a TimeInterval, e.g. the 52-week
+ * high and low over TimeInterval.OneYear. Computed from a PriceRangeIndex,
+ * so computing them for another timeline does not scan the prices again.
+ */
+public class PriceStatistics {
+
+    private final TimeInterval timeline;
+    private final double high;
+    private final int highDay;
+    private final double low;
+    private final int lowDay;
+    private final double allTimeHigh;
+    private final int allTimeHighDay;
+    private final double maxDrawdown;
+    private final double lastPrice;
+
+    private PriceStatistics(TimeInterval timeline, double high, int highDay, double low, int lowDay,
+                            double allTimeHigh, int allTimeHighDay, double maxDrawdown, double lastPrice) {
+        this.timeline = timeline;
+        this.high = high;
+        this.highDay = highDay;
+        this.low = low;
+        this.lowDay = lowDay;
+        this.allTimeHigh = allTimeHigh;
+        this.allTimeHighDay = allTimeHighDay;
+        this.maxDrawdown = maxDrawdown;
+        this.lastPrice = lastPrice;
+    }
+
+    /**
+     * @param prices all-time prices of the stock, oldest first
+     * @param index index built on the same prices
+     * @param timeline interval of the high, the low and the drawdown, up to today
+     * @return the statistics, null if there are no prices over the timeline
+     */
+    public static PriceStatistics compute(PriceSeries prices, PriceRangeIndex index, TimeInterval timeline) {
+        int last = prices.size() - 1;
+        int from = prices.indexAfter(timeline.getStartDay(LocalDate.now()));
+        if (from > last)
+            return null;
+
+        int high = index.indexOfHigh(from, last);
+        int low = index.indexOfLow(from, last);
+        int allTimeHigh = index.indexOfHigh(0, last);
+
+        return new PriceStatistics(timeline, prices.getClose(high), prices.getDay(high), prices.getClose(low), prices.getDay(low),
+                prices.getClose(allTimeHigh), prices.getDay(allTimeHigh), index.maxDrawdown(from, last), prices.getClose(last));
+    }
+
+    public TimeInterval getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * @return the highest price over the timeline
+     */
+    public double getHigh() {
+        return high;
+    }
+
+    /**
+     * @return the epoch day of the highest price over the timeline
+     */
+    public int getHighDay() {
+        return highDay;
+    }
+
+    /**
+     * @return the lowest price over the timeline
+     */
+    public double getLow() {
+        return low;
+    }
+
+    /**
+     * @return the epoch day of the lowest price over the timeline
+     */
+    public int getLowDay() {
+        return lowDay;
+    }
+
+    public double getAllTimeHigh() {
+        return allTimeHigh;
+    }
+
+    public int getAllTimeHighDay() {
+        return allTimeHighDay;
+    }
+
+    /**
+     * @return the largest fall from a price to a later one over the timeline, 0.25 for 25%
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    /**
+     * @return how far below the high of the timeline the most recent price is, 0.1 for 10%
+     */
+    public double getDistanceFromHigh() {
+        return high > 0 ? 1 - lastPrice / high : 0;
+    }
+
+    public double getLastPrice() {
+        return lastPrice;
+    }
+}
@@ -0,0 +1,174 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local store of price histories, one CompressedPriceFile per ticker.
+ * Used as a cache of the downloaded prices, and filled in bulk by the
+ * tools.PriceHistoryConverter.
+ * The CacheValidators of downloaded prices are kept next to them,
+ * so that they are only downloaded again once they have changed.
+ */
+public class PriceStore {
+
+    private static final String DEFAULT_DIRECTORY = "src/resources/price_history";
+
+    private static final String VALIDATORS_EXTENSION = ".validators";
+
+    // stored prices younger than this are used without downloading them again
+    private static final long MAX_AGE_MILLIS = 12 * 60 * 60 * 1000L;
+
+    // directory of the store used by the application, set with -Dinstock.priceStore
+    private static final PriceStore defaultStore = new PriceStore(new File(System.getProperty("instock.priceStore", DEFAULT_DIRECTORY)));
+
+    private final File directory;
+
+    /**
+     * @param directory directory holding the compressed price files
+     */
+    public PriceStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the store used by the application
+     */
+    public static PriceStore getDefault() {
+        return defaultStore;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @return the file holding the prices of that stock
+     */
+    public File getFile(String ticker) {
+        return new File(directory, ticker + CompressedPriceFile.EXTENSION);
+    }
+
+    /**
+     * @return the tickers of every stock stored, in no particular order
+     */
+    public List<String> getTickers() {
+        List<String> tickers = new ArrayList<>();
+        File[] files = directory.listFiles((parent, name) -> name.endsWith(CompressedPriceFile.EXTENSION));
+
+        if (files != null) {
+            for (File file : files)
+                tickers.add(file.getName().substring(0, file.getName().length() - CompressedPriceFile.EXTENSION.length()));
+        }
+
+        return tickers;
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @return true if the stock's prices are stored and were written recently
+     */
+    public boolean isFresh(String ticker) {
+        return isFresh(getFile(ticker));
+    }
+
+    /**
+     * @param file a file of stored prices
+     * @return true if the file exists and was written recently, or after the prices
+     * of the most recent trading day were published, since they are final until the next close
+     */
+    public static boolean isFresh(File file) {
+        long lastModified = file.lastModified();
+
+        return file.exists() && (System.currentTimeMillis() - lastModified < MAX_AGE_MILLIS
+                || lastModified >= MarketHours.lastPublication(Instant.now()).toEpochMilli());
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @return the stored prices of the stock, null if it is not stored
+     * @throws IOException if the file exists but cannot be read
+     */
+    public PriceHistory read(String ticker) throws IOException {
+        File file = getFile(ticker);
+
+        if (!file.exists())
+            return null;
+
+        return CompressedPriceFile.read(file);
+    }
+
+    /**
+     * @param ticker ticker of the stock
+     * @return the validators of the stored prices of the stock, null if there are none
+     * @throws IOException if the validators exist but cannot be read
+     */
+    public CacheValidators readValidators(String ticker) throws IOException {
+        if (!getFile(ticker).exists())
+            return null;
+
+        return CacheValidators.read(new File(directory, ticker + VALIDATORS_EXTENSION));
+    }
+
+    /**
+     * Stores the prices of a stock. The file is replaced atomically,
+     * so that readers never see a partially written file.
+     *
+     * @param ticker ticker of the stock
+     * @param history prices to store
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String ticker, PriceHistory history) throws IOException {
+        write(ticker, history, null);
+    }
+
+    /**
+     * Stores the prices of a stock along with the validators they were downloaded with.
+     *
+     * @param ticker ticker of the stock
+     * @param history prices to store
+     * @param validators validators of the prices, null if there are none
+     * @throws IOException if the files cannot be written
+     */
+    public void write(String ticker, PriceHistory history, CacheValidators validators) throws IOException {
+        if (!directory.exists() && !directory.mkdirs())
+            throw new IOException("Cannot create the price store " + directory);
+
+        // outdated validators must not outlive the prices they describe
+        File validatorsFile = new File(directory, ticker + VALIDATORS_EXTENSION);
+        Files.deleteIfExists(validatorsFile.toPath());
+
+        File temporaryFile = File.createTempFile(ticker + "-new-", ".tmp", directory);
+        try {
+            CompressedPriceFile.write(history, temporaryFile);
+            Files.move(temporaryFile.toPath(), getFile(ticker).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if (validators != null && !validators.isEmpty()) {
+                validators.write(temporaryFile);
+                Files.move(temporaryFile.toPath(), validatorsFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+
+    /**
+     * Marks the stored prices of a stock as fresh again,
+     * once the server confirmed they have not changed.
+     *
+     * @param ticker ticker of the stock
+     * @throws IOException if the prices are not stored
+     */
+    public void renew(String ticker) throws IOException {
+        if (!getFile(ticker).setLastModified(System.currentTimeMillis()))
+            throw new IOException("Cannot renew the stored prices of " + ticker);
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * A single price received from a live price feed.
+ */
+public class PriceUpdate {
+
+    private final String ticker;
+    private final String date;
+    private final double price;
+
+    /**
+     * @param ticker ticker of the stock
+     * @param date trading day of the price, formatted as yyyy-MM-dd
+     * @param price latest price of the stock for that day
+     */
+    public PriceUpdate(String ticker, String date, double price) {
+        this.ticker = ticker;
+        this.date = date;
+        this.price = price;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String toString() {
+        return this.ticker + " " + this.date + " - " + this.price;
+    }
+}
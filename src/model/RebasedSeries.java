@@ -0,0 +1,63 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Prices rebased to 100 on the first day of a timeline, so that stocks of
+ * different prices can be compared on the same chart.
+ *
+ * Each series is downsampled on its own to at most a number of points, by keeping
+ * the price at the end of every block of days: the first and most recent days are
+ * always kept, so a series still starts at 100 and ends on its latest change.
+ */
+public class RebasedSeries {
+
+    // value of every series on its first day
+    public static final double BASE = 100;
+
+    private RebasedSeries() {
+    }
+
+    /**
+     * @param prices all-time prices of the stock, oldest first
+     * @param timeline interval compared, up to today
+     * @param maxPoints maximum number of points kept, at least 2
+     * @return the prices after the start of the timeline, as a percentage of the first of them
+     */
+    public static PriceSeries compute(PriceSeries prices, TimeInterval timeline, int maxPoints) {
+        return compute(prices, timeline.getStartDay(LocalDate.now()), maxPoints);
+    }
+
+    /**
+     * @param prices all-time prices of the stock, oldest first
+     * @param startDay epoch day after which the prices are compared
+     * @param maxPoints maximum number of points kept, at least 2
+     * @return the prices after the start day, as a percentage of the first of them,
+     * empty if there are none or the first one is not positive
+     */
+    public static PriceSeries compute(PriceSeries prices, int startDay, int maxPoints) {
+        PriceSeries window = prices.from(prices.indexAfter(startDay));
+        int size = window.size();
+
+        if (size == 0 || !(window.getClose(0) > 0))
+            return new PriceHistory(new int[0], new double[0], 0);
+
+        // days per point, the blocks ending on the most recent day
+        int step = Math.max((size - 1 + maxPoints - 2) / (maxPoints - 1), 1);
+        int pointCount = (size - 1 + step - 1) / step + 1;
+
+        int[] days = new int[pointCount];
+        double[] values = new double[pointCount];
+        double scale = BASE / window.getClose(0);
+
+        days[0] = window.getDay(0);
+        values[0] = BASE;
+
+        for (int point = pointCount - 1, index = size - 1; point > 0; point--, index -= step) {
+            days[point] = window.getDay(index);
+            values[point] = window.getClose(index) * scale;
+        }
+
+        return new PriceHistory(days, values, pointCount);
+    }
+}
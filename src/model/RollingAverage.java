@@ -0,0 +1,77 @@
+package model;
+
+/**
+ * Simple moving average over a fixed number of values, updated in O(1).
+ * Values are kept in a ring buffer, so adding a value only needs to
+ * subtract the value leaving the window and add the one entering it.
+ */
+public class RollingAverage {
+
+    // the values currently in the window, oldest is at position 'next' once full
+    private final double[] window;
+
+    // position that the next value will be written to
+    private int next;
+
+    // number of values in the window, up to window.length
+    private int count;
+
+    // sum of the values in the window
+    private double sum;
+
+    /**
+     * @param size number of values averaged
+     */
+    public RollingAverage(int size) {
+        this.window = new double[size];
+    }
+
+    /**
+     * Adds a value to the window, dropping the oldest one if the window is full.
+     *
+     * @param value the newest value
+     */
+    public void add(double value) {
+        if (count == window.length)
+            sum -= window[next];
+        else
+            count++;
+
+        window[next] = value;
+        sum += value;
+        next = (next + 1) % window.length;
+
+        // recompute the sum once per lap so that rounding errors don't accumulate
+        if (next == 0 && count == window.length) {
+            sum = 0;
+            for (double each : window)
+                sum += each;
+        }
+    }
+
+    /**
+     * Replaces the newest value of the window, e.g. when the price of the current day is revised.
+     *
+     * @param value the revised newest value
+     */
+    public void replaceLast(double value) {
+        int last = (next - 1 + window.length) % window.length;
+
+        sum += value - window[last];
+        window[last] = value;
+    }
+
+    /**
+     * @return true once the window holds as many values as it averages
+     */
+    public boolean isFull() {
+        return count == window.length;
+    }
+
+    /**
+     * @return the average of the values in the window, NaN while the window is not full
+     */
+    public double getAverage() {
+        return isFull() ? sum / count : Double.NaN;
+    }
+}
@@ -0,0 +1,105 @@
+package model;
+
+/**
+ * Loops over primitive arrays computing moving averages and crossovers.
+ * windowMeans and difference are written so that the JIT compiles them to SIMD
+ * instructions: no dependency between iterations, no calls and no branches.
+ * The running sums and the scan of the crossovers are inherently sequential,
+ * they are kept to a single add or compare per day.
+ *
+ * Stock computes the running sums of its prices once and each moving average from them,
+ * and finds the crossovers of two moving averages with difference and signChanges.
+ * Screening and backtests sweeping many windows and pairs over the same prices should
+ * likewise reuse the sums and their arrays: copying prices into new arrays costs more
+ * than a single element by element pass, as tools.KernelBenchmark shows.
+ */
+public final class SeriesKernels {
+
+    private SeriesKernels() {
+    }
+
+    /**
+     * @param values values, oldest first
+     * @param count number of values used
+     * @param sums receives the running sums, sums[i] being the sum of the first i values, of length count + 1
+     */
+    public static void prefixSums(double[] values, int count, double[] sums) {
+        double sum = 0;
+        sums[0] = 0;
+
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+            sums[i + 1] = sum;
+        }
+    }
+
+    /**
+     * Computes the mean of every window of consecutive values from their running sums.
+     *
+     * @param sums running sums computed by prefixSums
+     * @param count number of values the sums are of
+     * @param window number of values in each window
+     * @param means receives the means, means[i] being the mean of values i to i + window - 1
+     * @return the number of means, count - window + 1 or 0 if there are fewer values than a window
+     */
+    public static int windowMeans(double[] sums, int count, int window, double[] means) {
+        int meanCount = Math.max(count - window + 1, 0);
+        double inverseWindow = 1.0 / window;
+
+        for (int i = 0; i < meanCount; i++)
+            means[i] = (sums[i + window] - sums[i]) * inverseWindow;
+
+        return meanCount;
+    }
+
+    /**
+     * @param values values, oldest first
+     * @param count number of values used
+     * @param window number of values in each window
+     * @param means receives the moving averages, each dated on the last value of its window
+     * @return the number of moving averages
+     */
+    public static int movingAverages(double[] values, int count, int window, double[] means) {
+        double[] sums = new double[count + 1];
+        prefixSums(values, count, sums);
+
+        return windowMeans(sums, count, window, means);
+    }
+
+    /**
+     * @param a first values
+     * @param b second values
+     * @param count number of values used
+     * @param difference receives a[i] - b[i]
+     */
+    public static void difference(double[] a, double[] b, int count, double[] difference) {
+        for (int i = 0; i < count; i++)
+            difference[i] = a[i] - b[i];
+    }
+
+    /**
+     * Finds where the differences change sign, moving back from the most recent one.
+     * Zeros keep the sign of the more recent differences, a zero most recent difference counts as negative.
+     *
+     * @param differences differences computed by difference(), oldest first
+     * @param count number of differences used
+     * @param changes receives the index of the older difference of each change, the most recent first
+     * @return the number of changes
+     */
+    public static int signChanges(double[] differences, int count, int[] changes) {
+        int changeCount = 0;
+        if (count == 0)
+            return 0;
+
+        boolean isPositive = differences[count - 1] > 0;
+
+        for (int i = count - 2; i >= 0; i--) {
+            if (isPositive ? differences[i] < 0 : differences[i] > 0) {
+                changes[changeCount++] = i;
+                isPositive = !isPositive;
+            }
+        }
+
+        return changeCount;
+    }
+}
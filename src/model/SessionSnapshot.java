@@ -0,0 +1,282 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What a user was looking at when they logged out: the stock, its timeline and resolution,
+ * the series graphed and the crossovers of the moving averages graphed. Restoring it shows
+ * the same graph at the next login, without downloading the prices or computing anything.
+ * The all-time prices are kept too, so that the stock can be analysed further right away.
+ *
+ * Layout, gzipped, big-endian:
+ *  int MAGIC, int VERSION, UTF name, UTF ticker, UTF timeline, UTF resolution, UTF statistics
+ *  series all-time prices, series graphed prices
+ *  int count, count x (UTF interval, series moving average)
+ *  series buys, series sells
+ *  UTF short interval, UTF long interval ("" if no crossovers), int count, count x boolean direction
+ * where a series is int count, count x int day, count x double value.
+ */
+public class SessionSnapshot {
+
+    public static final String EXTENSION = ".session";
+
+    private static final int MAGIC = 0x49535353; // "ISSS"
+    private static final int VERSION = 1;
+
+    private final String name;
+    private final String ticker;
+    private final TimeInterval timeline;
+    private final BarResolution resolution;
+    private final PriceSeries allTimePrices;
+    private final PriceSeries prices;
+    private final Map<MovingAverageInterval, PriceSeries> movingAverages;
+    private final PriceSeries buys;
+    private final PriceSeries sells;
+    private final MovingAverageInterval shortInterval;
+    private final MovingAverageInterval longInterval;
+    private final List<Boolean> intersectionDirections;
+    private final String statistics;
+
+    /**
+     * @param stock the stock graphed, whose prices and crossovers are kept
+     * @param prices closing prices graphed
+     * @param movingAverages moving averages graphed
+     * @param buys buy recommendations graphed
+     * @param sells sell recommendations graphed
+     * @param statistics statistics shown
+     */
+    public SessionSnapshot(Stock stock, PriceSeries prices, Map<MovingAverageInterval, PriceSeries> movingAverages,
+                           PriceSeries buys, PriceSeries sells, String statistics) {
+        this.name = stock.getName();
+        this.ticker = stock.getTicker();
+        this.timeline = stock.getCurrentTimeline();
+        this.resolution = stock.getResolution();
+        this.allTimePrices = stock.getPrices();
+        this.prices = prices;
+        this.movingAverages = new EnumMap<>(MovingAverageInterval.class);
+        this.movingAverages.putAll(movingAverages);
+        this.buys = buys;
+        this.sells = sells;
+
+        synchronized (stock) {
+            this.shortInterval = stock.getCrossoverShortInterval();
+            this.longInterval = stock.getCrossoverLongInterval();
+            this.intersectionDirections = shortInterval == null ? Collections.emptyList() : stock.getIntersectionData();
+        }
+
+        this.statistics = statistics == null ? "" : statistics;
+    }
+
+    private SessionSnapshot(String name, String ticker, TimeInterval timeline, BarResolution resolution,
+                            PriceSeries allTimePrices, PriceSeries prices, Map<MovingAverageInterval, PriceSeries> movingAverages,
+                            PriceSeries buys, PriceSeries sells, MovingAverageInterval shortInterval,
+                            MovingAverageInterval longInterval, List<Boolean> intersectionDirections, String statistics) {
+        this.name = name;
+        this.ticker = ticker;
+        this.timeline = timeline;
+        this.resolution = resolution;
+        this.allTimePrices = allTimePrices;
+        this.prices = prices;
+        this.movingAverages = movingAverages;
+        this.buys = buys;
+        this.sells = sells;
+        this.shortInterval = shortInterval;
+        this.longInterval = longInterval;
+        this.intersectionDirections = intersectionDirections;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param file file written by write()
+     * @return the snapshot, null if there is none
+     * @throws IOException if the file cannot be read or is not in this format
+     */
+    public static SessionSnapshot read(File file) throws IOException {
+        if (!file.exists())
+            return null;
+
+        try (FileInputStream fileInput = new FileInputStream(file);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fileInput)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("Not a session snapshot: " + file);
+
+            String name = input.readUTF();
+            String ticker = input.readUTF();
+            TimeInterval timeline = TimeInterval.valueOf(input.readUTF());
+            BarResolution resolution = BarResolution.valueOf(input.readUTF());
+            String statistics = input.readUTF();
+            PriceSeries allTimePrices = readSeries(input);
+            PriceSeries prices = readSeries(input);
+
+            Map<MovingAverageInterval, PriceSeries> movingAverages = new EnumMap<>(MovingAverageInterval.class);
+            int movingAverageCount = input.readInt();
+            for (int i = 0; i < movingAverageCount; i++)
+                movingAverages.put(MovingAverageInterval.valueOf(input.readUTF()), readSeries(input));
+
+            PriceSeries buys = readSeries(input);
+            PriceSeries sells = readSeries(input);
+
+            String shortName = input.readUTF();
+            String longName = input.readUTF();
+            List<Boolean> intersectionDirections = new ArrayList<>();
+            int directionCount = input.readInt();
+            for (int i = 0; i < directionCount; i++)
+                intersectionDirections.add(input.readBoolean());
+
+            return new SessionSnapshot(name, ticker, timeline, resolution, allTimePrices, prices, movingAverages, buys, sells,
+                    shortName.isEmpty() ? null : MovingAverageInterval.valueOf(shortName),
+                    longName.isEmpty() ? null : MovingAverageInterval.valueOf(longName),
+                    intersectionDirections, statistics);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid session snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot, replacing the file at once so that a previous snapshot
+     * is kept if the application is closed while writing.
+     *
+     * @param file destination
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        File temporaryFile = File.createTempFile(file.getName() + "-new-", ".tmp", file.getAbsoluteFile().getParentFile());
+
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporaryFile.toPath()))))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(name);
+                output.writeUTF(ticker);
+                output.writeUTF(timeline.name());
+                output.writeUTF(resolution.name());
+                output.writeUTF(statistics);
+                writeSeries(output, allTimePrices);
+                writeSeries(output, prices);
+
+                output.writeInt(movingAverages.size());
+                for (Map.Entry<MovingAverageInterval, PriceSeries> movingAverage : movingAverages.entrySet()) {
+                    output.writeUTF(movingAverage.getKey().name());
+                    writeSeries(output, movingAverage.getValue());
+                }
+
+                writeSeries(output, buys);
+                writeSeries(output, sells);
+
+                output.writeUTF(shortInterval == null ? "" : shortInterval.name());
+                output.writeUTF(longInterval == null ? "" : longInterval.name());
+                output.writeInt(intersectionDirections.size());
+                for (boolean isBuy : intersectionDirections)
+                    output.writeBoolean(isBuy);
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+
+    /**
+     * Recreates the stock from the prices kept, with the timeline, resolution and crossovers it had
+     *
+     * @return the stock, without downloading its prices
+     */
+    public Stock restoreStock() {
+        Stock stock = new Stock(name, ticker, allTimePrices);
+        stock.setTimeline(timeline);
+        stock.setResolution(resolution);
+
+        if (shortInterval != null)
+            stock.restoreIntersections(shortInterval, longInterval, intersectionDirections);
+
+        return stock;
+    }
+
+    private static void writeSeries(DataOutputStream output, PriceSeries series) throws IOException {
+        int size = series.size();
+        int[] days = new int[size];
+        double[] values = new double[size];
+        series.getDays(0, size, days);
+        series.getCloses(0, size, values);
+
+        output.writeInt(size);
+        for (int day : days)
+            output.writeInt(day);
+        for (double value : values)
+            output.writeDouble(value);
+    }
+
+    private static PriceSeries readSeries(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        int[] days = new int[size];
+        double[] values = new double[size];
+
+        for (int i = 0; i < size; i++)
+            days[i] = input.readInt();
+        for (int i = 0; i < size; i++)
+            values[i] = input.readDouble();
+
+        return new PriceHistory(days, values, size);
+    }
+
+    public TimeInterval getTimeline() {
+        return timeline;
+    }
+
+    public BarResolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @return the closing prices graphed
+     */
+    public PriceSeries getPrices() {
+        return prices;
+    }
+
+    /**
+     * @param interval a moving average
+     * @return the moving average graphed, null if it was not
+     */
+    public PriceSeries getMovingAverage(MovingAverageInterval interval) {
+        return movingAverages.get(interval);
+    }
+
+    public PriceSeries getBuys() {
+        return buys;
+    }
+
+    public PriceSeries getSells() {
+        return sells;
+    }
+
+    /**
+     * @return true if moving averages were graphed along with their crossovers
+     */
+    public boolean hasIntersections() {
+        return shortInterval != null;
+    }
+
+    /**
+     * @return the statistics shown
+     */
+    public String getStatistics() {
+        return statistics;
+    }
+}
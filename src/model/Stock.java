@@ -1,12 +1,25 @@
 package model;
 
-import javafx.scene.chart.XYChart;
+import model.StockPipelineEvent.Stage;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Stock
 {
+    // address of the CSV of all-time prices, {ticker} being replaced by the ticker of the stock
+    private static final String PRICES_URL = System.getProperty("instock.pricesUrl",
+            "http://chart.finance.yahoo.com/table.csv?s={ticker}&ignore=.csv");
+
 //------------------------------STOCK ATTRIBUTES-----------------------------------
 
     // holds name of stock
@@ -16,8 +29,23 @@ public class Stock
     private String ticker;
 
     
-    // stores the all-time adjusted closing prices of the selected stock into a linkedlist
-    private LinkedList<StockEntry> data;
+    // stores the all-time adjusted closing prices of the selected stock, oldest first
+    private volatile PriceSeries data;
+
+    // incremented every time a live price changes the data
+    private volatile int dataVersion;
+
+    // all-time moving averages computed or being computed, each with the dataVersion it is computed from
+    private final Map<MovingAverageInterval, CachedMovingAverage> movingAverages = new ConcurrentHashMap<>();
+
+    // running sums of the all-time prices, which every moving average is computed from
+    private volatile CachedPrefixSums prefixSums;
+
+    // highs, lows and drawdowns of the all-time prices, which the statistics of every timeline are read from
+    private volatile CachedRangeIndex rangeIndex;
+
+    // fingerprint of the all-time prices, which the IndicatorCache stores their indicators under
+    private volatile CachedFingerprint fingerprint;
     
     // stores an array of booleans of whether the intersection is at a positive or negative
     private ArrayList<Boolean> intersectionDirection;
@@ -25,6 +53,23 @@ public class Stock
     // stores the current timeline of the stock being graphed
     private TimeInterval currentTimeline;
 
+    // resolution the prices are graphed and analysed at
+    private volatile BarResolution resolution = BarResolution.Daily;
+
+    // the all-time prices resampled at the resolution, kept up to date by live prices, null if daily or not resampled yet
+    private PriceBars bars;
+
+    // moving averages of the most recent days, by MovingAverageInterval ordinal, advanced by live prices
+    private RollingAverage[] liveAverages;
+
+    // moving averages last passed to getIntersectionsList, whose crossovers are tracked live
+    private MovingAverageInterval crossoverShortMA;
+    private MovingAverageInterval crossoverLongMA;
+    private CrossoverTracker liveCrossover;
+
+    // crossover on the most recent live day
+    private Recommendation lastLiveCrossover = Recommendation.HOLD;
+
     
 //------------------------------STOCK CONTRUCTORS-----------------------------------
     
@@ -42,8 +87,7 @@ public class Stock
     /**
      * Main constructor for stock object
      * Sets name and ticker
-     * Fills the linked list with data from the csv (filePath)
-     * Initializes array of MA and computes the data
+     * Loads the all-time prices from the local stores or the csv
      * @param name
      * @param ticker
      */
@@ -52,7 +96,22 @@ public class Stock
         this.name = name;
         this.ticker = ticker;
         this.currentTimeline = TimeInterval.OneYear;
-        data = new LinkedList<>(this.fetchStockData());
+        data = this.fetchStockData();
+    }
+
+    /**
+     * Constructor for a stock whose prices are already loaded, e.g. restored from a SessionSnapshot
+     * The prices are kept on the TradingCalendar
+     * @param name
+     * @param ticker
+     * @param prices all-time prices, oldest first
+     */
+	public Stock(String name, String ticker, PriceSeries prices)
+    {
+        this.name = name;
+        this.ticker = ticker;
+        this.currentTimeline = TimeInterval.OneYear;
+        data = TradingCalendar.intern(ticker, prices);
     }
 
 
@@ -61,141 +120,359 @@ public class Stock
     /**
      * OUTPUT SERIES OF PRICES
      * Cuts the data and outputs a list
-     * @return series of closing prices
+     * @return closing prices over the timeline, oldest first
      */
-    public XYChart.Series<String, Number> getPricesInRange()
+    public PriceSeries getPricesInRange()
     {
-    	XYChart.Series<String, Number> series;
-        LinkedList<StockEntry> tempData = new LinkedList<>(data);
+        PriceSeries tempData = snapshotSeries();
        
-        tempData = truncateList(tempData);
-        tempData = this.removeDataPoints(tempData);
-       	series = listToSeries(tempData);
+        tempData = truncateList(tempData, null);
+        tempData = this.removeDataPoints(tempData, null);
        	
-        return series;
+        return tempData;
     }
     
-    public List<Boolean> getIntersectionData() {
+    public synchronized List<Boolean> getIntersectionData() {
     	List<Boolean> tempList = new ArrayList<>(intersectionDirection);
     	
     	Collections.reverse(tempList);
     	
     	return tempList;
     }
+
+    /**
+     * Restores the crossovers last found by getIntersectionsList, e.g. from a SessionSnapshot,
+     * so that the recommendation is given and live prices track them without finding them again
+     * @param shortMA
+     * @param longMA
+     * @param directions true for each buy, oldest first, as given by getIntersectionData
+     */
+    public synchronized void restoreIntersections(MovingAverageInterval shortMA, MovingAverageInterval longMA, List<Boolean> directions)
+    {
+    	intersectionDirection = new ArrayList<>(directions);
+    	Collections.reverse(intersectionDirection);
+
+    	crossoverShortMA = shortMA;
+    	crossoverLongMA = longMA;
+    	liveCrossover = null;
+    	lastLiveCrossover = Recommendation.HOLD;
+    }
+
+    /**
+     * @return the short moving average last passed to getIntersectionsList, null if none was
+     */
+    public synchronized MovingAverageInterval getCrossoverShortInterval()
+    {
+    	return crossoverShortMA;
+    }
+
+    /**
+     * @return the long moving average last passed to getIntersectionsList, null if none was
+     */
+    public synchronized MovingAverageInterval getCrossoverLongInterval()
+    {
+    	return crossoverLongMA;
+    }
     
     /**
      * Outputs the intersection Series of two given Moving Averages
+     * Can be called from a background thread, along with getMovingAverage and getPricesInRange,
+     * while live prices are appended
      * @param shortMA
      * @param longMA
-     * @return a series of intersection points of the two moving averages parameters
+     * @return the intersection points of the two moving averages parameters, oldest first
      */
-    public XYChart.Series<String, Number> getIntersectionsList(MovingAverageInterval shortMA, MovingAverageInterval longMA)
+    public PriceSeries getIntersectionsList(MovingAverageInterval shortMA, MovingAverageInterval longMA)
   
     {
-    	Boolean shortOnTop;
-    	StockEntry shortTermStock;
-    	StockEntry longTermStock;
-    	double shortTermPrice;
-    	double longTermPrice;
-    	XYChart.Series<String, Number> series;
-    	
-    	LinkedList<StockEntry> intersectionList = new LinkedList<>();
-    	LinkedList<StockEntry> shortList;
+    	int version = dataVersion;
+    	PriceSeries allTimeData = snapshotSeries();
+    	IndicatorCache.Crossovers crossovers;
+
+    	if (ticker.isEmpty())
+    		crossovers = computeCrossovers(shortMA, longMA, allTimeData, version);
+    	else
+    	{
+    		// crossovers found with the same prices and parameters, e.g. before a restart, are read back
+    		IndicatorCache cache = IndicatorCache.getDefault();
+    		BarResolution atResolution = resolution;
+    		TimeInterval timeline = currentTimeline;
+    		int startDay = timeline.getStartDay(LocalDate.now());
+    		long fingerprint = getFingerprint(allTimeData, version);
+
+    		crossovers = cache.readCrossovers(ticker, atResolution, timeline, startDay, shortMA, longMA, fingerprint);
+    		if (crossovers == null)
+    		{
+    			crossovers = computeCrossovers(shortMA, longMA, allTimeData, version);
+    			cache.writeCrossovers(ticker, atResolution, timeline, startDay, shortMA, longMA, fingerprint, crossovers);
+    		}
+    	}
+
+    	// directions are kept from the most recent crossover
+    	ArrayList<Boolean> directions = new ArrayList<>(crossovers.size());
+    	for (int i = crossovers.size() - 1; i >= 0; i--)
+    		directions.add(crossovers.isBuy(i));
+
+    	// live prices now track the crossovers of these moving averages
+    	synchronized (this)
+    	{
+    		intersectionDirection = directions;
+    		crossoverShortMA = shortMA;
+    		crossoverLongMA = longMA;
+    		liveCrossover = null;
+    		lastLiveCrossover = Recommendation.HOLD;
+    	}
+
+    	return new PriceHistory(crossovers.getDays(), crossovers.getValues(), crossovers.size());
+    }
+
+    /**
+     * Finds the crossovers of two moving averages over the current timeline
+     * @param allTimeData snapshot of the all-time prices
+     * @param version dataVersion read before taking the snapshot
+     * @return the crossovers, oldest first
+     */
+    private IndicatorCache.Crossovers computeCrossovers(MovingAverageInterval shortMA, MovingAverageInterval longMA,
+                                                        PriceSeries allTimeData, int version)
+    {
+    	PriceSeries shortList;
     	if(shortMA.equals(longMA))
     	{
-    		shortList = new LinkedList<>(data);
+    		shortList = allTimeData;
     	}
     	else
-    		shortList = new LinkedList<>(computeMovingAverages(shortMA, data));
+    		shortList = getAllTimeMovingAverage(shortMA, allTimeData, version);
     		
-    	shortList = truncateList(shortList);
-    	LinkedList<StockEntry> longList = new LinkedList<>(computeMovingAverages(longMA, data));
-    	longList = truncateList(longList);
-    	shortList = removeDataPoints(shortList);
-    	longList = removeDataPoints(longList);
+    	MovingAverageInterval shortInterval = shortMA.equals(longMA) ? null : shortMA;
+    	shortList = truncateList(shortList, shortInterval);
+    	PriceSeries longList = getAllTimeMovingAverage(longMA, allTimeData, version);
+    	longList = truncateList(longList, longMA);
+    	shortList = removeDataPoints(shortList, shortInterval);
+    	longList = removeDataPoints(longList, longMA);
     	
-    	intersectionDirection = new ArrayList<>();
-    	
-    	//Starts removing stocks from today and moves backwards
-    	shortTermStock = shortList.remove();
-    	longTermStock = longList.remove();
-    	
-    	shortTermPrice = shortTermStock.getValue();
-    	longTermPrice = longTermStock.getValue();
-    	
-    	if(shortTermPrice > longTermPrice)
-    		shortOnTop = true;
-    	else
-    		shortOnTop = false;
-    	
-    	while(!longList.isEmpty() && !shortList.isEmpty())
+    	StockPipelineEvent crossoverEvent = StockPipelineEvent.begin(Stage.CROSSOVER, this, shortMA, longMA, shortList.size());
+
+    	// both lists end on the most recent day, so they are paired from the end
+    	int pairs = Math.min(shortList.size(), longList.size());
+    	int shortStart = shortList.size() - pairs;
+
+    	double[] shortValues = new double[pairs];
+    	double[] differences = new double[pairs];
+    	shortList.getCloses(shortStart, pairs, shortValues);
+    	longList.getCloses(longList.size() - pairs, pairs, differences);
+    	SeriesKernels.difference(shortValues, differences, pairs, differences);
+
+    	// intersections found, from the most recent, starting from today and moving backwards
+    	int[] changes = new int[pairs];
+    	int intersectionCount = SeriesKernels.signChanges(differences, pairs, changes);
+    	boolean shortOnTop = pairs > 0 && differences[pairs - 1] > 0;
+
+    	crossoverEvent.complete(intersectionCount);
+
+    	// the intersections are graphed oldest first
+    	int[] days = new int[intersectionCount];
+    	double[] prices = new double[intersectionCount];
+    	boolean[] buys = new boolean[intersectionCount];
+    	for (int i = 0; i < intersectionCount; i++)
     	{
-    		shortTermStock = shortList.remove();
-        	longTermStock = longList.remove();
-        	
-        	shortTermPrice = shortTermStock.getValue();
-        	longTermPrice = longTermStock.getValue();
-        	
-        	if(shortOnTop && shortTermPrice < longTermPrice)
-        	{
-        		intersectionList.add(shortTermStock);
-        		intersectionDirection.add(true);
-        		shortOnTop = false;
-        	}
-        	if(!shortOnTop && shortTermPrice > longTermPrice)
-        	{
-        		intersectionList.add(shortTermStock);
-        		intersectionDirection.add(false);
-        		shortOnTop = true;
-        	}	
+    		int change = changes[intersectionCount - 1 - i];
+    		days[i] = shortList.getDay(shortStart + change);
+    		prices[i] = shortValues[change];
+
+    		// short going below while moving backwards is short going above moving forward,
+    		// and the side on top alternates from today's at every intersection
+    		buys[i] = shortOnTop == ((intersectionCount - 1 - i) % 2 == 0);
     	}
-    	 series = listToSeries(intersectionList);
-         
-         return series;
+
+    	return new IndicatorCache.Crossovers(days, prices, buys);
     }
     
     /** OUTPUT SERIES OF MA
      * Prob need to adapt to selected timeline of graph (return 254 MAs if timeline is one year for stock)
      * Get moving average serie based on interval
      * @param interval
-     * @return Series of moving average over interval
+     * @return moving averages over interval, oldest first
      */
-    public XYChart.Series<String, Number> getMovingAverage(MovingAverageInterval interval)
+    public PriceSeries getMovingAverage(MovingAverageInterval interval)
     {
-        XYChart.Series<String, Number> series;
-        LinkedList<StockEntry> tempData = new LinkedList<>(data);
-        
-        switch(interval)
+        int version = dataVersion;
+        PriceSeries tempData = getAllTimeMovingAverage(interval, snapshotSeries(), version);
+
+        tempData = truncateList(tempData, interval);
+        tempData = this.removeDataPoints(tempData, interval);
+
+        return tempData;
+    }
+
+    /**
+     * Appends a price received from a live feed, and advances the moving averages
+     * and the crossover of the moving averages last passed to getIntersectionsList in O(1).
+     * A price for the most recent day revises that day, prices for older days are ignored.
+     * At a weekly or monthly resolution the price updates the most recent bar,
+     * and the moving averages and crossover advance bar by bar.
+     * Must be called from the thread graphing the stock.
+     * @param date trading day of the price, formatted as yyyy-MM-dd
+     * @param price latest price for that day
+     * @return the changes to graph, null if the price was ignored
+     */
+    public synchronized StockUpdate appendPrice(String date, double price)
+    {
+    	if (data == null)
+    		data = new PriceHistory(new int[0], new double[0], 0);
+
+    	// the history is read-only, live prices are appended on top of it
+    	if (!(data instanceof AppendablePriceSeries))
+    		data = new AppendablePriceSeries(data);
+    	AppendablePriceSeries liveData = (AppendablePriceSeries) data;
+
+    	int day = PriceHistory.parseEpochDay(date);
+    	int mostRecentDay = liveData.size() == 0 ? Integer.MIN_VALUE : liveData.getDay(liveData.size() - 1);
+
+    	if (day < mostRecentDay)
+    		return null;
+
+    	boolean isNewDay = day != mostRecentDay;
+
+    	// the bars are resampled before the price is appended, then updated with it
+    	PriceBars liveBars = resolution == BarResolution.Daily ? null : getBars();
+    	int lastPointDay = liveBars == null ? mostRecentDay
+    			: liveBars.size() == 0 ? Integer.MIN_VALUE : liveBars.getDay(liveBars.size() - 1);
+
+    	if (liveAverages == null)
+    		seedLiveAverages();
+    	if (liveCrossover == null && crossoverLongMA != null)
+    		seedLiveCrossover();
+
+    	if (isNewDay)
+    		liveData.append(day, price);
+    	else
+    		liveData.setLastClose(price);
+    	dataVersion++;
+    	updateRangeIndex(isNewDay, price);
+
+    	// a new point of the graph is a new day, or a new week or month at those resolutions
+    	boolean isNewPoint = liveBars == null ? isNewDay : liveBars.add(day, price);
+
+    	double[] movingAverages = new double[liveAverages.length];
+    	for (int i = 0; i < liveAverages.length; i++) {
+    		if (isNewPoint)
+    			liveAverages[i].add(price);
+    		else
+    			liveAverages[i].replaceLast(price);
+    		movingAverages[i] = liveAverages[i].getAverage();
+    	}
+
+    	Recommendation crossover = Recommendation.HOLD;
+    	Recommendation previousCrossover = isNewPoint ? Recommendation.HOLD : lastLiveCrossover;
+    	double shortValue = Double.NaN;
+
+    	if (liveCrossover != null) {
+    		shortValue = crossoverShortMA.equals(crossoverLongMA) ? price : movingAverages[crossoverShortMA.ordinal()];
+    		double longValue = movingAverages[crossoverLongMA.ordinal()];
+
+    		if (Double.isNaN(shortValue) || Double.isNaN(longValue))
+    			crossover = Recommendation.HOLD; // not enough days yet
+    		else if (isNewPoint)
+    			crossover = liveCrossover.update(shortValue, longValue);
+    		else
+    			crossover = liveCrossover.revise(shortValue, longValue);
+
+    		// intersectionDirection is ordered from the most recent crossover
+    		if (previousCrossover != Recommendation.HOLD)
+    			intersectionDirection.remove(0);
+    		if (crossover != Recommendation.HOLD)
+    			intersectionDirection.add(0, crossover == Recommendation.BUY);
+    	}
+    	lastLiveCrossover = crossover;
+
+    	return new StockUpdate(date, day, price, isNewPoint, isNewPoint ? Integer.MIN_VALUE : lastPointDay,
+    			movingAverages, shortValue, crossover, previousCrossover);
+    }
+
+    /**
+     * Outputs the highs, lows and drawdown of the stock over a timeline
+     * Can be called from a background thread while live prices are appended
+     * The index of the prices is built once, outside the lock, then kept up to date by appendPrice
+     * @param timeline interval of the statistics, OneYear for the 52-week high and low
+     * @return the statistics, null if there are no prices over the timeline
+     */
+    public PriceStatistics getStatistics(TimeInterval timeline)
+    {
+        synchronized (this)
+        {
+            CachedRangeIndex cached = rangeIndex;
+            if (cached != null && cached.version == dataVersion)
+                return PriceStatistics.compute(snapshotData(), cached.index, timeline);
+        }
+
+        int version = dataVersion;
+        PriceSeries prices = snapshotData();
+        PriceRangeIndex index = new PriceRangeIndex(prices);
+
+        synchronized (this)
+        {
+            // kept unless live prices were appended while it was built
+            if (version == dataVersion)
+                rangeIndex = new CachedRangeIndex(version, index);
+        }
+
+        return PriceStatistics.compute(prices, index, timeline);
+    }
+
+    /**
+     * Adds a live price to the index of the prices, if it was up to date before it
+     * @param isNewDay true if the price was appended, false if it revised the last day
+     * @param price the price
+     */
+    private synchronized void updateRangeIndex(boolean isNewDay, double price)
+    {
+        CachedRangeIndex cached = rangeIndex;
+        if (cached == null || cached.version != dataVersion - 1)
+            return;
+
+        if (isNewDay)
+            cached.index.append(price);
+        else
+            cached.index.setLastClose(price);
+
+        rangeIndex = new CachedRangeIndex(dataVersion, cached.index);
+    }
+
+    /**
+     * Downloads the all-time prices again if they changed since they were stored, however
+     * recently that was, and replaces the prices of this stock with them. The moving averages
+     * are computed again at the resolution, which stores them in the IndicatorCache, so that
+     * the stock is graphed next from the stores without waiting for anything.
+     * Live prices appended meanwhile are replaced by the downloaded ones.
+     * Can be called from a background thread
+     * @return true if the prices were downloaded or read back from the store
+     */
+    public boolean refresh()
+    {
+        PriceSeries prices = PriceLoader.getDefault().refresh(this.ticker, this::refreshStockData);
+        if (prices.size() == 0)
+            return false;
+
+        synchronized (this)
         {
-            case TwentyDay:
-            	tempData = computeMovingAverages(interval, tempData);
-          
-                break;
-
-            case FiftyDay:
-            	tempData = computeMovingAverages(interval, tempData);
-
-                break;
-
-            case HundredDay:
-            	tempData = computeMovingAverages(interval, tempData);
-             
-                break;
-
-            case TwoHundredDay:
-            	tempData = computeMovingAverages(interval, tempData);
-         
-                
-                break;
+            data = prices;
+            bars = null;
+            liveAverages = null;
+            liveCrossover = null;
+            lastLiveCrossover = Recommendation.HOLD;
+            dataVersion++;
         }
-        tempData = new LinkedList<>(truncateList(tempData));
-        tempData = this.removeDataPoints(tempData);
-        series = listToSeries(tempData);
 
-        return series;
+        int version = dataVersion;
+        PriceSeries snapshot = snapshotSeries();
+        for (MovingAverageInterval interval : MovingAverageInterval.values())
+            getAllTimeMovingAverage(interval, snapshot, version);
+        getStatistics(currentTimeline);
+
+        return true;
     }
 
-    public int getRecommendation()
+    public synchronized int getRecommendation()
     {	
     	if (intersectionDirection == null || intersectionDirection.size() <= 0) {
     		return 0;
@@ -208,12 +485,54 @@ public class Stock
     }
 //------------------------------PRIVATE STOCK METHODS-----------------------------------
 
+    /**
+     * Fills the live moving averages with the most recent days (or bars) of the history
+     */
+    private void seedLiveAverages()
+    {
+        MovingAverageInterval[] intervals = MovingAverageInterval.values();
+        PriceSeries prices = resolution == BarResolution.Daily ? data : getBars();
+        liveAverages = new RollingAverage[intervals.length];
+
+        for (int i = 0; i < intervals.length; i++) {
+            int window = resolution.getBars(intervals[i]);
+            liveAverages[i] = new RollingAverage(window);
+
+            // the averages are fed the most recent days, from the oldest to the newest
+            for (int j = Math.max(prices.size() - window, 0); j < prices.size(); j++)
+                liveAverages[i].add(prices.getClose(j));
+        }
+    }
+
+    /**
+     * Starts tracking the crossover from the current position of the moving averages
+     */
+    private void seedLiveCrossover()
+    {
+        double longValue = liveAverages[crossoverLongMA.ordinal()].getAverage();
+        double shortValue;
+
+        PriceSeries prices = resolution == BarResolution.Daily ? data : getBars();
+
+        if (crossoverShortMA.equals(crossoverLongMA))
+            shortValue = prices.size() == 0 ? Double.NaN : prices.getClose(prices.size() - 1);
+        else
+            shortValue = liveAverages[crossoverShortMA.ordinal()].getAverage();
+
+        liveCrossover = new CrossoverTracker();
+        if (!Double.isNaN(shortValue) && !Double.isNaN(longValue))
+            liveCrossover.update(shortValue, longValue);
+    }
+
     /**
      * Removes Data points for all time Data
+     * Each point kept is the average of the days following it,
+     * stepping back from the most recent day
      * @param allDataPoints
+     * @param interval moving average the list holds, null for closing prices
      * @return
      */
-    private LinkedList<StockEntry> removeDataPoints(LinkedList<StockEntry> allDataPoints){
+    private PriceSeries removeDataPoints(PriceSeries allDataPoints, MovingAverageInterval interval){
         // the number of total Data points for All time data list
         final int ALL_TIME_DATA_POINTS = 500;
         // the maximum number of all time data points before it gets smoothed
@@ -221,15 +540,13 @@ public class Stock
         // the amount the data points are being divided by for the 5 year data
         final int FIVE_YEAR_DIVIDER = 2;
 
+        // weekly and monthly bars are graphed as they are, they already summarize the days
+        if (resolution != BarResolution.Daily)
+            return allDataPoints;
+
         // here data size is the size of the array holding all the values - maybe it should be size of the list passed ?
     	if (allDataPoints.size() > MAX_DATA_POINTS){
-		    LinkedList<StockEntry> tempData = new LinkedList<>(allDataPoints);
-		    LinkedList<StockEntry> truncatedDataPoints = new LinkedList<>();
-		    Queue<Double> window = new LinkedList<>();
-
-		    double total = 0;
-		    int count = 0;
-		    StockEntry currentStockEntry;
+		    StockPipelineEvent event = StockPipelineEvent.begin(Stage.DOWNSAMPLE, this, interval, allDataPoints.size());
             int dataPointDivider;
 
             if (TimeInterval.AllTime == currentTimeline) {
@@ -239,180 +556,449 @@ public class Stock
                 dataPointDivider = FIVE_YEAR_DIVIDER;
             }
 
-		    for (int i = tempData.size() ; i > 0 ; i--){
-
-		        currentStockEntry = tempData.removeFirst();
+            // position of each kept day, counted back from the most recent day
+            int last = allDataPoints.size() - 1;
+            int pointCount = (allDataPoints.size() - 1) / dataPointDivider;
+            int[] days = new int[pointCount];
+            double[] values = new double[pointCount];
 
-		        if(window.size()< dataPointDivider){
-		            window.add(currentStockEntry.getValue());
-		            total += currentStockEntry.getValue();
-		        }
-		        else{
+		    for (int point = 0; point < pointCount; point++){
+		        // the kept day is dataPointDivider days back per point, averaged with the days after it
+		        int index = last - (point + 1) * dataPointDivider;
+		        double total = 0;
 
-		            if(count%dataPointDivider == 0)
-		                truncatedDataPoints.add(new StockEntry(currentStockEntry.getDate(), total/dataPointDivider));
+		        for (int i = index + 1; i <= index + dataPointDivider; i++)
+		            total += allDataPoints.getClose(i);
 
-		            total -= window.poll();
-		            window.add(currentStockEntry.getValue());
-		            total += currentStockEntry.getValue();
-		            count++;
-		        }
+		        // points are stored oldest first
+		        days[pointCount - 1 - point] = allDataPoints.getDay(index);
+		        values[pointCount - 1 - point] = total / dataPointDivider;
 		    }
-		    return truncatedDataPoints;
+
+		    event.complete(pointCount);
+		    return new PriceHistory(days, values, pointCount);
     	}
     	else
     		return allDataPoints;
     }
 
     /**
-     * Calculates the moving averages over a time interval
-     * @return A Linked List containing all the moving averages for the stock over the interval
+     * Fixes the prices to compute from, so that live prices appended meanwhile are not half read
+     * @return the all-time prices as they are now
      */
-    private LinkedList<StockEntry> computeMovingAverages(MovingAverageInterval movingAverageInterval, LinkedList<StockEntry> allTimeDataList)
+    private PriceSeries snapshotData()
     {
-    	//Change from movingAverageInterval to an integer of days
-        int interval = 0;
-        switch(movingAverageInterval)
-        {
-            case TwentyDay:
-               interval = 20;
-                break;
+        PriceSeries prices = data;
+        if (prices instanceof AppendablePriceSeries)
+            return ((AppendablePriceSeries) prices).snapshot();
 
-            case FiftyDay:
-               interval = 50;
-                break;
+        return prices == null ? new PriceHistory(new int[0], new double[0], 0) : prices;
+    }
 
-            case HundredDay:
-                interval = 100;
-                break;
+    /**
+     * Fixes the prices to graph at the resolution, so that live prices appended meanwhile are not half read
+     * @return the all-time prices as they are now, daily or resampled
+     */
+    private PriceSeries snapshotSeries()
+    {
+        return resolution == BarResolution.Daily ? snapshotData() : getBars().snapshot();
+    }
 
-            case TwoHundredDay:
-                interval = 200;
-                break;
-        }
+    /**
+     * Resamples the all-time prices at the resolution the first time they are needed
+     * @return the bars, which appendPrice keeps up to date
+     */
+    private synchronized PriceBars getBars()
+    {
+        if (bars == null)
+            bars = PriceBars.resample(snapshotData(), resolution);
+
+        return bars;
+    }
 
-        //Create a temporary list and a queue to compute moving average
-        LinkedList<StockEntry> movingAverageList = new LinkedList<>();
-        Queue<StockEntry> window = new LinkedList<>();
+    /**
+     * Looks up the all-time moving averages over a time interval, computing them
+     * only if the prices changed since they were last computed. Concurrent callers
+     * asking for the same interval wait for a single computation.
+     * The map only holds the computation while it is published, the averages are
+     * computed or read from the IndicatorCache outside of it.
+     * @param interval
+     * @param prices snapshot of the all-time prices
+     * @param version dataVersion read before taking the snapshot
+     * @return the all-time moving averages
+     */
+    private PriceSeries getAllTimeMovingAverage(MovingAverageInterval interval, PriceSeries prices, int version)
+    {
+        CachedMovingAverage ownComputation = new CachedMovingAverage(version, new CompletableFuture<>());
+        CachedMovingAverage cached = movingAverages.compute(interval, (key, current) ->
+                current == null || current.version < version || current.averages.isCompletedExceptionally() ? ownComputation : current);
 
-        // holds the sum of the stock prices
-        double movingAverage = 0;
-        int count = 0;
+        // the prices changed since this snapshot was taken, its averages are not kept
+        if (cached.version != version)
+            return loadMovingAverages(interval, prices, version);
 
-        for(StockEntry entries : allTimeDataList)
+        if (cached == ownComputation)
         {
-            if(count < interval)
+            try
             {
-                window.add(entries);
-                movingAverage += entries.getValue();
-                count++;
+                ownComputation.averages.complete(loadMovingAverages(interval, prices, version));
             }
-            if(count == interval)
+            catch (RuntimeException | Error e)
             {
-                double ma = movingAverage / interval;
-                StockEntry tempEntry = new StockEntry(window.peek().getDate(), ma);
-                movingAverageList.add(tempEntry);
-
-                movingAverage -= window.peek().getValue();
-                window.poll();
-                count--;
+                ownComputation.averages.completeExceptionally(e);
+                throw e;
             }
         }
-        return movingAverageList;
+
+        try
+        {
+            return cached.averages.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
     }
 
     /**
-     * Takes a list and outputs a series containing the same data
-     * @param list
-     * @return A Series object to be plugged in the chart
+     * Reads the all-time moving averages from the IndicatorCache if they were stored for
+     * the same prices, e.g. before a restart, otherwise computes and stores them
+     * @param interval
+     * @param prices snapshot of the all-time prices
+     * @param version dataVersion read before taking the snapshot
+     * @return the all-time moving averages
      */
-    private XYChart.Series<String, Number> listToSeries(LinkedList<StockEntry> list)
+    private PriceSeries loadMovingAverages(MovingAverageInterval interval, PriceSeries prices, int version)
     {
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        BarResolution atResolution = resolution;
+        int window = atResolution.getBars(interval);
 
-        // reverse the list because we read the csv from most recent to oldest prices
-        Collections.reverse(list);
+        if (ticker.isEmpty())
+            return datedAverages(prices, window, computeMovingAverages(interval, window, prices, getPrefixSums(prices, version)));
 
-        // iterates over the passed list and adds the data to the series
-        for(StockEntry entries : list)
+        IndicatorCache cache = IndicatorCache.getDefault();
+        long fingerprint = getFingerprint(prices, version);
+
+        double[] averages = cache.readMovingAverages(ticker, atResolution, interval, fingerprint);
+        if (averages == null || averages.length != Math.max(prices.size() - window + 1, 0))
         {
-            series.getData().add(new XYChart.Data<>(entries.getDate(), entries.getValue()));
+            averages = computeMovingAverages(interval, window, prices, getPrefixSums(prices, version));
+            cache.writeMovingAverages(ticker, atResolution, interval, fingerprint, averages);
         }
 
-        return series;
+        return datedAverages(prices, window, averages);
+    }
+
+    /**
+     * Looks up the fingerprint the IndicatorCache stores results under,
+     * computing it only if the prices changed since it was last computed
+     * @param prices snapshot of the all-time prices
+     * @param version dataVersion read before taking the snapshot
+     * @return the fingerprint of the prices
+     */
+    private long getFingerprint(PriceSeries prices, int version)
+    {
+        CachedFingerprint cached = fingerprint;
+        if (cached != null && cached.version == version && cached.size == prices.size())
+            return cached.fingerprint;
+
+        long value = IndicatorCache.fingerprint(prices);
+        fingerprint = new CachedFingerprint(version, prices.size(), value);
+        return value;
+    }
+
+    /**
+     * Looks up the running sums of the all-time prices, computing them
+     * only if the prices changed since they were last computed
+     * @param prices snapshot of the all-time prices
+     * @param version dataVersion read before taking the snapshot
+     * @return the running sums, computed by SeriesKernels.prefixSums
+     */
+    private double[] getPrefixSums(PriceSeries prices, int version)
+    {
+        CachedPrefixSums cached = prefixSums;
+        if (cached != null && cached.version == version && cached.sums.length == prices.size() + 1)
+            return cached.sums;
+
+        double[] closes = new double[prices.size()];
+        double[] sums = new double[closes.length + 1];
+        prices.getCloses(0, closes.length, closes);
+        SeriesKernels.prefixSums(closes, closes.length, sums);
+
+        prefixSums = new CachedPrefixSums(version, sums);
+        return sums;
+    }
+
+    /**
+     * Calculates the moving averages over a time interval
+     * @param window number of prices averaged, the interval at the resolution
+     * @param prefixSums running sums of the list
+     * @return all the moving averages for the stock over the interval, oldest first
+     */
+    private double[] computeMovingAverages(MovingAverageInterval movingAverageInterval, int window, PriceSeries allTimeDataList, double[] prefixSums)
+    {
+        StockPipelineEvent event = StockPipelineEvent.begin(Stage.MOVING_AVERAGE, this, movingAverageInterval, allTimeDataList.size());
+
+        int count = Math.max(allTimeDataList.size() - window + 1, 0);
+        double[] averages = new double[count];
+
+        // the averages are computed in bulk from the running sums
+        SeriesKernels.windowMeans(prefixSums, allTimeDataList.size(), window, averages);
+
+        event.complete(count);
+        return averages;
+    }
+
+    /**
+     * Dates each average on the last day of its window
+     * @param prices prices the averages were computed from
+     * @param window number of prices averaged
+     * @param averages the moving averages, oldest first
+     * @return A series containing the moving averages
+     */
+    private static PriceSeries datedAverages(PriceSeries prices, int window, double[] averages)
+    {
+        int count = averages.length;
+
+        // prices on the trading calendar share its days with their averages
+        if (prices instanceof CalendarPriceSeries)
+            return ((CalendarPriceSeries) prices).withValues(window - 1, averages);
+
+        int[] days = new int[count];
+        if (count > 0)
+            prices.getDays(window - 1, count, days);
+
+        return new PriceHistory(days, averages, count);
     }
 
     /**
      * HELPER FOR STOCK CLASS
-     * Populates the list from the CSV file
-     * @return Size of the list
+     * Loads the prices through the PriceLoader, so that stocks created
+     * at the same time for the same ticker share a single load
+     * @return the all-time prices, oldest first
+     */
+    private PriceSeries fetchStockData()
+    {
+        return PriceLoader.getDefault().load(this.ticker, this::loadStockData);
+    }
+
+    /**
+     * Reads the prices straight from the shared MappedPriceStore if it holds recent prices,
+     * otherwise from the local PriceStore if it holds recent prices,
+     * otherwise downloads the CSV if it changed since it was stored, and stores it for the next time.
+     * Falls back to older stored prices if the download fails.
+     * Prices not read from the MappedPriceStore are kept on the TradingCalendar.
+     * @return the all-time prices, oldest first
+     */
+    private PriceSeries loadStockData()
+    {
+        MappedPriceStore mappedStore = MappedPriceStore.getDefault();
+        if (PriceStore.isFresh(mappedStore.getFile()))
+        {
+            PriceSeries mappedPrices = mappedStore.find(this.ticker);
+            if (mappedPrices != null)
+                return mappedPrices;
+        }
+
+        PriceStore store = PriceStore.getDefault();
+        PriceHistory history = null;
+
+        if (store.isFresh(this.ticker))
+            history = readStoredPrices(store);
+
+        if (history == null)
+        {
+            history = downloadPrices(store);
+
+            if (history == null)
+                history = readStoredPrices(store);
+        }
+
+        if (history == null)
+            return new PriceHistory(new int[0], new double[0], 0);
+
+        // the days are kept once for all stocks, in the trading calendar
+        return TradingCalendar.intern(this.ticker, history);
+    }
+
+    /**
+     * Downloads the prices even if the stored ones are recent, falling back to the stored ones
+     * Prices are kept on the TradingCalendar
+     * @return the all-time prices, oldest first
      */
-    private LinkedList<StockEntry> fetchStockData()
+    private PriceSeries refreshStockData()
     {
-    	LinkedList<StockEntry> allTimeDataPoints = new LinkedList<>();
-        Scanner csvScanner = null;
+        PriceStore store = PriceStore.getDefault();
+        PriceHistory history = downloadPrices(store);
+
+        if (history == null)
+            history = readStoredPrices(store);
+
+        if (history == null)
+            return new PriceHistory(new int[0], new double[0], 0);
+
+        return TradingCalendar.intern(this.ticker, history);
+    }
+
+    /**
+     * Downloads and parses the CSV of all-time prices, and stores it
+     * The download is conditional on the stored prices having changed,
+     * in which case the stored prices are renewed and read instead
+     * @param store the local store
+     * @return the prices, null if the download failed
+     */
+    private PriceHistory downloadPrices(PriceStore store)
+    {
+        StockPipelineEvent fetchEvent = StockPipelineEvent.begin(Stage.FETCH, this, null, 0);
 
         try
         {
-            csvScanner = new Scanner(new URL("http://chart.finance.yahoo.com/table.csv?s=" + this.ticker + "&ignore=.csv").openStream());
+            URL url = new URL(PRICES_URL.replace("{ticker}", URLEncoder.encode(this.ticker, "UTF-8")));
 
-            csvScanner.nextLine(); // skip first line
+            // the CSV is parsed as it is downloaded
+            PriceFetchClient.Response<PriceHistory> response = PriceFetchClient.getDefault().fetch(url, store.readValidators(this.ticker), body -> {
+                StockPipelineEvent parseEvent = StockPipelineEvent.begin(Stage.PARSE, this, null, 0);
+                PriceHistory parsedHistory = PriceHistory.fromCsv(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+                parseEvent.complete(parsedHistory.size());
 
-            String each_line;
-            String[] columns;
+                return parsedHistory;
+            });
 
-            while(csvScanner.hasNextLine())
+            if (response.isNotModified())
             {
-                each_line = csvScanner.nextLine();
-                columns = each_line.split(",");
+                fetchEvent.complete(0);
+                store.renew(this.ticker);
+
+                return readStoredPrices(store);
+            }
 
-                allTimeDataPoints.add(new StockEntry(columns[0], Double.parseDouble(columns[6])));
+            PriceHistory history = response.getValue();
+            fetchEvent.complete(history.size());
+
+            try
+            {
+                store.write(this.ticker, history, response.getValidators());
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
             }
+
+            return history;
         }
         catch (Exception e)
         {
             e.printStackTrace();
+            return null;
         }
-        finally
+    }
+
+    /**
+     * Reads the prices kept in the local store
+     * @param store the local store
+     * @return the prices, null if they are not stored
+     */
+    private PriceHistory readStoredPrices(PriceStore store)
+    {
+        StockPipelineEvent decodeEvent = StockPipelineEvent.begin(Stage.DECODE, this, null, 0);
+
+        try
         {
-            if (csvScanner != null) {
-                csvScanner.close();
-            }
-        }
+            PriceHistory history = store.read(this.ticker);
+            decodeEvent.complete(history == null ? 0 : history.size());
 
-        return allTimeDataPoints;
+            return history;
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
     }
     /**
      * Reduces the size of a list to hold only the data relevant to the time interval
      * @param allTimeDataPoints
-     * @return A Linked List with the desired data over specified time
-     */
-    private LinkedList<StockEntry> truncateList(LinkedList<StockEntry> allTimeDataPoints) {
-        LinkedList<StockEntry> tempAllTime = new LinkedList<>(allTimeDataPoints);
-        LinkedList<StockEntry> truncatedData = new LinkedList<>();
-        Calendar cal = Calendar.getInstance();
-
-        switch(currentTimeline) {
-            case OneYear:
-                cal.add(Calendar.YEAR, -1);
-                break;
-            case TwoYears:
-                cal.add(Calendar.YEAR, -2);
-                break;
-            case FiveYears:
-                cal.add(Calendar.YEAR, -5);
-                break;
-            case AllTime:
-                return allTimeDataPoints;
-        }
+     * @param interval moving average the list holds, null for closing prices
+     * @return A view of the list with the desired data over specified time
+     */
+    private PriceSeries truncateList(PriceSeries allTimeDataPoints, MovingAverageInterval interval) {
+        StockPipelineEvent event = StockPipelineEvent.begin(Stage.TRUNCATE, this, interval, allTimeDataPoints.size());
 
-        Date stoppingDate = cal.getTime();
-        while (tempAllTime.peekFirst().getComparableDate().after(stoppingDate)) {
-            truncatedData.add(tempAllTime.pop());
+        if (currentTimeline == TimeInterval.AllTime) {
+            event.complete(allTimeDataPoints.size());
+            return allTimeDataPoints;
         }
+
+        // the days after the stopping date are at the end of the list
+        PriceSeries truncatedData = allTimeDataPoints.from(allTimeDataPoints.indexAfter(currentTimeline.getStartDay(LocalDate.now())));
+        event.complete(truncatedData.size());
         return truncatedData;
     }
 
+    /**
+     * Running sums of the all-time prices along with the dataVersion they were computed from
+     */
+    private static class CachedPrefixSums
+    {
+        private final int version;
+        private final double[] sums;
+
+        CachedPrefixSums(int version, double[] sums)
+        {
+            this.version = version;
+            this.sums = sums;
+        }
+    }
+
+    /**
+     * Fingerprint of the all-time prices along with the dataVersion it was computed from
+     */
+    private static class CachedFingerprint
+    {
+        private final int version;
+        private final int size;
+        private final long fingerprint;
+
+        CachedFingerprint(int version, int size, long fingerprint)
+        {
+            this.version = version;
+            this.size = size;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Index of the all-time prices along with the dataVersion it was built from
+     */
+    private static class CachedRangeIndex
+    {
+        private final int version;
+        private final PriceRangeIndex index;
+
+        CachedRangeIndex(int version, PriceRangeIndex index)
+        {
+            this.version = version;
+            this.index = index;
+        }
+    }
+
+    /**
+     * All-time moving averages, once computed, along with the dataVersion they are computed from
+     */
+    private static class CachedMovingAverage
+    {
+        private final int version;
+        private final CompletableFuture<PriceSeries> averages;
+
+        CachedMovingAverage(int version, CompletableFuture<PriceSeries> averages)
+        {
+            this.version = version;
+            this.averages = averages;
+        }
+    }
+
 //------------------------------GETTERS AND SETTERS-----------------------------------
     
     /**
@@ -424,6 +1010,16 @@ public class Stock
         return this.name;
     }
     
+    /**
+     * Accessor for the all-time prices, e.g. to compare them with other stocks
+     * Safe to call from another thread while live prices are appended
+     * @return the all-time prices as they are now, oldest first
+     */
+    public PriceSeries getPrices()
+    {
+        return snapshotData();
+    }
+
     /**
      * Mutator to set the timeline of the current stock
      * @param currentTimeline
@@ -433,6 +1029,29 @@ public class Stock
 		this.currentTimeline = currentTimeline;
 	}
 	
+	/**
+	 * Mutator to set the resolution the stock is graphed and analysed at
+	 * The moving averages and crossovers are recomputed at the new resolution
+	 * @param resolution
+	 */
+	public synchronized void setResolution(BarResolution resolution)
+	{
+		if (resolution == this.resolution)
+			return;
+
+		this.resolution = resolution;
+		bars = null;
+		liveAverages = null;
+		liveCrossover = null;
+		lastLiveCrossover = Recommendation.HOLD;
+		dataVersion++;
+	}
+
+	public BarResolution getResolution()
+	{
+		return resolution;
+	}
+
 	/**
 	 * Accessor for the timeline of the current stock
 	 * @return the current timeline
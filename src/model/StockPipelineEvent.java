@@ -0,0 +1,120 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted for each stage of loading and analyzing a Stock.
+ * The duration of the event is the time spent in the stage, and the element counts
+ * are the sizes of the list going into and coming out of it.
+ *
+ * Usage pattern:
+ * <pre>
+ *     StockPipelineEvent event = StockPipelineEvent.begin(Stage.TRUNCATE, this, null, input.size());
+ *     ... do the work ...
+ *     event.complete(output.size());
+ * </pre>
+ */
+@Name("instock.StockPipeline")
+@Label("Stock Pipeline Stage")
+@Category({"inStock", "Stock"})
+@Description("A stage of loading or analyzing the data of a Stock")
+@StackTrace(false)
+public class StockPipelineEvent extends Event {
+
+    /**
+     * The stages of the Stock data and analytics pipeline.
+     */
+    public enum Stage {
+        FETCH,
+        PARSE,
+        DECODE,
+        TRUNCATE,
+        DOWNSAMPLE,
+        MOVING_AVERAGE,
+        CROSSOVER,
+        LIST_TO_SERIES
+    }
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Ticker")
+    private String ticker;
+
+    @Label("Moving Average Interval")
+    @Description("Moving average being computed, empty for closing prices")
+    private String interval;
+
+    @Label("Timeline")
+    private String timeline;
+
+    @Label("Input Count")
+    @Description("Number of elements going into the stage")
+    private int inputCount;
+
+    @Label("Output Count")
+    @Description("Number of elements coming out of the stage")
+    private int outputCount;
+
+    /**
+     * Creates and starts timing an event for the given stage. When recording is
+     * disabled, nothing is filled in and the returned event is never committed.
+     *
+     * @param stage - stage of the pipeline being timed
+     * @param stock - Stock being loaded or analyzed
+     * @param interval - moving average being computed, null for closing prices
+     * @param inputCount - number of elements going into the stage
+     * @return the started event
+     */
+    public static StockPipelineEvent begin(Stage stage, Stock stock, MovingAverageInterval interval, int inputCount) {
+        return begin(stage, stock, interval, null, inputCount);
+    }
+
+    /**
+     * Creates and starts timing an event for a stage working on two moving averages,
+     * such as the crossover detection. The interval is recorded as "short/long".
+     *
+     * @param stage - stage of the pipeline being timed
+     * @param stock - Stock being analyzed
+     * @param shortMA - short term moving average
+     * @param longMA - long term moving average
+     * @param inputCount - number of elements going into the stage
+     * @return the started event
+     */
+    public static StockPipelineEvent begin(Stage stage, Stock stock, MovingAverageInterval shortMA, MovingAverageInterval longMA, int inputCount) {
+        StockPipelineEvent event = new StockPipelineEvent();
+
+        if (event.isEnabled()) {
+            event.stage = stage.name();
+            event.ticker = stock.getTicker();
+            if (shortMA == null)
+                event.interval = "";
+            else if (longMA == null)
+                event.interval = shortMA.name();
+            else
+                event.interval = shortMA.name() + "/" + longMA.name();
+            event.timeline = stock.getCurrentTimeline().name();
+            event.inputCount = inputCount;
+            event.begin();
+        }
+
+        return event;
+    }
+
+    /**
+     * Stops timing the event and commits it to the recording.
+     *
+     * @param outputCount - number of elements coming out of the stage
+     */
+    public void complete(int outputCount) {
+        if (isEnabled()) {
+            this.outputCount = outputCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package model;
+
+/**
+ * Describes how a live price changed a Stock, so that the chart can be
+ * updated incrementally instead of being regraphed.
+ */
+public class StockUpdate {
+
+    private final String date;
+    private final int day;
+    private final double price;
+    private final boolean isNewDay;
+    private final int revisedDay;
+    private final double[] movingAverages;
+    private final double crossoverValue;
+    private final Recommendation crossover;
+    private final Recommendation previousCrossover;
+
+    /**
+     * @param date trading day of the price
+     * @param day the same day, as an epoch day
+     * @param price latest price for that day
+     * @param isNewDay true if the price starts a new day (or bar), false if it revises the last one
+     * @param revisedDay epoch day of the point revised, before the revision, Integer.MIN_VALUE for a new day
+     * @param movingAverages latest value of each MovingAverageInterval, by ordinal, NaN if not enough days
+     * @param crossoverValue value of the short term series at the crossover
+     * @param crossover crossover on that day of the graphed moving averages
+     * @param previousCrossover crossover on that day before the revision, HOLD for a new day
+     */
+    StockUpdate(String date, int day, double price, boolean isNewDay, int revisedDay, double[] movingAverages,
+                double crossoverValue, Recommendation crossover, Recommendation previousCrossover) {
+        this.date = date;
+        this.day = day;
+        this.price = price;
+        this.isNewDay = isNewDay;
+        this.revisedDay = revisedDay;
+        this.movingAverages = movingAverages;
+        this.crossoverValue = crossoverValue;
+        this.crossover = crossover;
+        this.previousCrossover = previousCrossover;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return the trading day of the price, as an epoch day
+     */
+    public int getDay() {
+        return day;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public boolean isNewDay() {
+        return isNewDay;
+    }
+
+    /**
+     * A weekly or monthly bar is dated on its most recent day, so revising it moves it.
+     * @return the epoch day of the point revised, before the revision, Integer.MIN_VALUE for a new day
+     */
+    public int getRevisedDay() {
+        return revisedDay;
+    }
+
+    /**
+     * @param interval the moving average
+     * @return its latest value, NaN if the stock does not have enough days yet
+     */
+    public double getMovingAverage(MovingAverageInterval interval) {
+        return movingAverages[interval.ordinal()];
+    }
+
+    public double getCrossoverValue() {
+        return crossoverValue;
+    }
+
+    public Recommendation getCrossover() {
+        return crossover;
+    }
+
+    public Recommendation getPreviousCrossover() {
+        return previousCrossover;
+    }
+}
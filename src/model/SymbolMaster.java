@@ -0,0 +1,266 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The stocks that can be searched and graphed, loaded from a file with one
+ * TICKER,Company Name line per stock.
+ *
+ * Searches are answered from two sorted prefix arrays: one of the tickers, and one
+ * of every word of the company names up to the end of the name, so "dep" finds
+ * "Home Depot" and "home de" finds it too. The entries starting with the query are
+ * contiguous in a sorted array, so a search is two binary searches and a scan of
+ * at most as many entries as results wanted, whatever the number of stocks.
+ */
+public class SymbolMaster {
+
+    /**
+     * A stock that can be graphed
+     */
+    public static class Symbol {
+
+        private final String ticker;
+        private final String name;
+
+        Symbol(String ticker, String name) {
+            this.ticker = ticker;
+            this.name = name;
+        }
+
+        public String getTicker() {
+            return ticker;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String toString() {
+            return this.ticker + " - " + this.name;
+        }
+    }
+
+    /**
+     * A searchable text and the stock it leads to, while the index is built
+     */
+    private static class Key {
+
+        final String text;
+        final int symbol;
+
+        Key(String text, int symbol) {
+            this.text = text;
+            this.symbol = symbol;
+        }
+    }
+
+    private static final String DEFAULT_FILE = "src/resources/symbols.csv";
+
+    // characters separating the words of a name
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}&']+");
+
+    private static SymbolMaster defaultMaster;
+
+    // stocks in the order of the file
+    private final Symbol[] symbols;
+
+    // upper case tickers, sorted, and the index in symbols of each
+    private final String[] tickerKeys;
+    private final int[] tickerSymbols;
+
+    // lower case names from each word on, sorted, and the index in symbols of each
+    private final String[] nameKeys;
+    private final int[] nameSymbols;
+
+    /**
+     * @param symbols the stocks, without duplicate tickers
+     */
+    public SymbolMaster(List<Symbol> symbols) {
+        this.symbols = symbols.toArray(new Symbol[0]);
+
+        List<Key> tickers = new ArrayList<>(symbols.size());
+        List<Key> names = new ArrayList<>(symbols.size() * 3);
+
+        for (int i = 0; i < this.symbols.length; i++) {
+            tickers.add(new Key(this.symbols[i].getTicker().toUpperCase(Locale.ROOT), i));
+
+            // every word of the name starts a key, so that any of them can be typed first
+            String name = normalizeName(this.symbols[i].getName());
+            for (int start = 0; start < name.length(); start++) {
+                if (name.charAt(start) != ' ' && (start == 0 || name.charAt(start - 1) == ' '))
+                    names.add(new Key(name.substring(start), i));
+            }
+        }
+
+        Key[] sortedTickers = sort(tickers);
+        tickerKeys = new String[sortedTickers.length];
+        tickerSymbols = new int[sortedTickers.length];
+        for (int i = 0; i < sortedTickers.length; i++) {
+            tickerKeys[i] = sortedTickers[i].text;
+            tickerSymbols[i] = sortedTickers[i].symbol;
+        }
+
+        Key[] sortedNames = sort(names);
+        nameKeys = new String[sortedNames.length];
+        nameSymbols = new int[sortedNames.length];
+        for (int i = 0; i < sortedNames.length; i++) {
+            nameKeys[i] = sortedNames[i].text;
+            nameSymbols[i] = sortedNames[i].symbol;
+        }
+    }
+
+    /**
+     * @return the stocks of src/resources/symbols.csv, loaded on first use
+     */
+    public static synchronized SymbolMaster getDefault() {
+        if (defaultMaster == null) {
+            try {
+                defaultMaster = load(DEFAULT_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                defaultMaster = new SymbolMaster(new ArrayList<>());
+            }
+        }
+
+        return defaultMaster;
+    }
+
+    /**
+     * Reads a file of TICKER,Company Name lines. Blank lines are skipped,
+     * and a ticker listed twice keeps its first name.
+     *
+     * @param fileName file to read
+     * @return the stocks of the file, indexed
+     * @throws IOException if the file cannot be read
+     */
+    public static SymbolMaster load(String fileName) throws IOException {
+        Map<String, Symbol> symbols = new LinkedHashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma <= 0)
+                    continue;
+
+                String ticker = line.substring(0, comma).trim();
+                String name = line.substring(comma + 1).trim();
+                if (!ticker.isEmpty())
+                    symbols.putIfAbsent(ticker, new Symbol(ticker, name.isEmpty() ? ticker : name));
+            }
+        }
+
+        return new SymbolMaster(new ArrayList<>(symbols.values()));
+    }
+
+    /**
+     * Finds the stocks whose ticker or a word of whose name starts with the query.
+     * The stock whose ticker is the query comes first, then the tickers starting
+     * with it, then the names, each in alphabetical order.
+     *
+     * @param query text typed by the user, case is ignored
+     * @param limit maximum number of stocks returned
+     * @return the stocks found, every stock in the order of the file (up to the limit) if the query is blank
+     */
+    public List<Symbol> search(String query, int limit) {
+        List<Symbol> results = new ArrayList<>(Math.min(limit, Math.min(symbols.length, 64)));
+        String trimmed = query == null ? "" : query.trim();
+
+        if (trimmed.isEmpty()) {
+            for (int i = 0; i < symbols.length && results.size() < limit; i++)
+                results.add(symbols[i]);
+            return results;
+        }
+
+        // the indices found, to not list a stock twice, as many as the results and not the stocks
+        int[] found = new int[Math.min(limit, symbols.length)];
+        int foundCount = 0;
+
+        String tickerQuery = trimmed.toUpperCase(Locale.ROOT);
+        int position = lowerBound(tickerKeys, tickerQuery);
+        for (; position < tickerKeys.length && foundCount < found.length && tickerKeys[position].startsWith(tickerQuery); position++)
+            found[foundCount++] = tickerSymbols[position];
+
+        String nameQuery = normalizeName(trimmed);
+        for (position = lowerBound(nameKeys, nameQuery);
+                position < nameKeys.length && foundCount < found.length && nameKeys[position].startsWith(nameQuery); position++) {
+            if (!contains(found, foundCount, nameSymbols[position]))
+                found[foundCount++] = nameSymbols[position];
+        }
+
+        for (int i = 0; i < foundCount; i++)
+            results.add(symbols[found[i]]);
+
+        return results;
+    }
+
+    /**
+     * @param ticker ticker of a stock, case is ignored
+     * @return the stock, null if it is not listed
+     */
+    public Symbol get(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        int position = lowerBound(tickerKeys, key);
+
+        return position < tickerKeys.length && tickerKeys[position].equals(key) ? symbols[tickerSymbols[position]] : null;
+    }
+
+    /**
+     * @return the number of stocks
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    /**
+     * @return the name in lower case, its words separated by single spaces
+     */
+    private static String normalizeName(String name) {
+        return SEPARATORS.matcher(name.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static Key[] sort(List<Key> keys) {
+        Key[] sorted = keys.toArray(new Key[0]);
+        Arrays.sort(sorted, (a, b) -> a.text.compareTo(b.text));
+
+        return sorted;
+    }
+
+    /**
+     * @return the position of the first key not less than the query
+     */
+    private static int lowerBound(String[] keys, String query) {
+        int low = 0;
+        int high = keys.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(query) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value)
+                return true;
+        }
+
+        return false;
+    }
+}
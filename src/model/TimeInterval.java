@@ -1,8 +1,25 @@
 package model;
 
+import java.time.LocalDate;
+
 public enum TimeInterval {
-    OneYear,
-    TwoYears,
-    FiveYears,
-    AllTime
+    OneYear(1),
+    TwoYears(2),
+    FiveYears(5),
+    AllTime(0);
+
+    // number of years back from today, 0 for all time
+    private final int years;
+
+    TimeInterval(int years) {
+        this.years = years;
+    }
+
+    /**
+     * @param today the current day
+     * @return the epoch day the interval starts after, Integer.MIN_VALUE for all time
+     */
+    public int getStartDay(LocalDate today) {
+        return years == 0 ? Integer.MIN_VALUE : (int) today.minusYears(years).toEpochDay();
+    }
 }
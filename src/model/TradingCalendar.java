@@ -0,0 +1,234 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The trading days shared by every stock loaded, so that a stock's prices are
+ * stored as an offset in the calendar and a dense column of closes
+ * (CalendarPriceSeries) instead of each stock keeping its own copy of the days.
+ *
+ * A calendar is immutable: the days are a sorted array, and a table holding, for
+ * every day from the first to the last, the number of trading days before it,
+ * maps a day to its index in O(1). Stocks loaded with days before or after those
+ * of the calendar replace the default calendar with one holding them, the stocks
+ * loaded before keep the calendar they were loaded with. A day missing inside the
+ * calendar is only added once QUORUM stocks have it, so that a bad row, or a stock
+ * trading on a different holiday, does not add a day that every later stock lacks.
+ *
+ * Stocks on the same calendar are aligned by their offsets alone: the index of a
+ * day is the same for all of them, unless they skip some of the days.
+ */
+public class TradingCalendar {
+
+    // number of stocks that must have a day missing inside the calendar for it to be added
+    private static final int QUORUM = 3;
+    // number of days missing inside the calendar counted at once, the longest counted are dropped first
+    private static final int MAX_MISSING_DAYS = 256;
+
+    private static TradingCalendar defaultCalendar = new TradingCalendar(new int[0]);
+
+    // tickers of the stocks loaded with each day missing inside the default calendar,
+    // in the order the days were first seen, so that one-off bad rows are dropped in time
+    private static final Map<Integer, Set<String>> missingDayTickers = new LinkedHashMap<Integer, Set<String>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Set<String>> eldest) {
+            return size() > MAX_MISSING_DAYS;
+        }
+    };
+
+    // trading days as epoch days, in increasing order
+    private final int[] days;
+
+    // number of trading days before each day from the first trading day to the last
+    private final int[] ranks;
+
+    private TradingCalendar(int[] days) {
+        this.days = days;
+        this.ranks = new int[days.length == 0 ? 0 : days[days.length - 1] - days[0] + 1];
+
+        for (int i = 0, rank = 0; i < ranks.length; i++) {
+            ranks[i] = rank;
+            if (days[rank] == days[0] + i)
+                rank++;
+        }
+    }
+
+    /**
+     * @return the calendar of the stocks loaded so far
+     */
+    public static synchronized TradingCalendar getDefault() {
+        return defaultCalendar;
+    }
+
+    /**
+     * Stores prices against the default calendar, adding the days it is missing
+     * before its first day and after its last, and the days missing inside it
+     * that a quorum of stocks have. Prices that skip trading days of the calendar
+     * are stored with the days they have.
+     *
+     * @param ticker stock of the prices, each stock counts once towards the quorum of a day
+     * @param prices prices of a stock, oldest first
+     * @return the prices on the calendar, or the prices given if they have a day it does not have yet
+     */
+    public static PriceSeries intern(String ticker, PriceSeries prices) {
+        int size = prices.size();
+        if (size == 0 || prices instanceof CalendarPriceSeries)
+            return prices;
+
+        int[] priceDays = new int[size];
+        prices.getDays(0, size, priceDays);
+
+        TradingCalendar calendar;
+        synchronized (TradingCalendar.class) {
+            int[] newDays = takeNewDays(ticker, priceDays);
+            if (newDays.length > 0)
+                defaultCalendar = defaultCalendar.merge(newDays);
+            calendar = defaultCalendar;
+        }
+
+        if (!calendar.containsAll(priceDays))
+            return prices; // a day the calendar does not have until a quorum of stocks have it
+
+        double[] closes = new double[size];
+        prices.getCloses(0, size, closes);
+
+        int start = calendar.indexOf(priceDays[0]);
+        int end = calendar.indexOf(priceDays[size - 1]);
+        if (end - start == size - 1)
+            return new CalendarPriceSeries(calendar, start, closes);
+
+        // some trading days are missing from the prices
+        long[] present = new long[(end - start) / 64 + 1];
+        for (int day : priceDays) {
+            int bit = calendar.indexOf(day) - start;
+            present[bit / 64] |= 1L << bit;
+        }
+
+        return new CalendarPriceSeries(calendar, start, present, closes);
+    }
+
+    /**
+     * Counts the days missing inside the default calendar towards their quorum.
+     * Must be called holding the lock of the class.
+     *
+     * @param sortedDays days of a stock in increasing order
+     * @return the days to add to the default calendar, in increasing order
+     */
+    private static int[] takeNewDays(String ticker, int[] sortedDays) {
+        TradingCalendar calendar = defaultCalendar;
+        int[] newDays = new int[sortedDays.length];
+        int count = 0;
+
+        for (int day : sortedDays) {
+            if (calendar.indexOf(day) >= 0)
+                continue;
+
+            if (calendar.size() == 0 || day < calendar.days[0] || day > calendar.days[calendar.size() - 1]) {
+                newDays[count++] = day;
+                continue;
+            }
+
+            Set<String> tickers = missingDayTickers.computeIfAbsent(day, ignored -> new HashSet<>());
+            tickers.add(ticker);
+            if (tickers.size() >= QUORUM) {
+                missingDayTickers.remove(day);
+                newDays[count++] = day;
+            }
+        }
+
+        return Arrays.copyOf(newDays, count);
+    }
+
+    /**
+     * @return the number of trading days
+     */
+    public int size() {
+        return days.length;
+    }
+
+    /**
+     * @param index position of the trading day
+     * @return the trading day, as an epoch day
+     */
+    public int getDay(int index) {
+        return days[index];
+    }
+
+    /**
+     * Copies consecutive trading days.
+     *
+     * @param from position of the first day
+     * @param count number of days
+     * @param destination receives the days, from index 0
+     */
+    public void getDays(int from, int count, int[] destination) {
+        System.arraycopy(days, from, destination, 0, count);
+    }
+
+    /**
+     * @param day epoch day
+     * @return the position of the day, -1 if it is not a trading day
+     */
+    public int indexOf(int day) {
+        int rank = rankOf(day);
+
+        return rank < days.length && days[rank] == day ? rank : -1;
+    }
+
+    /**
+     * @param day epoch day
+     * @return the position of the first trading day strictly after it, size() if there is none
+     */
+    public int indexAfter(int day) {
+        int rank = rankOf(day);
+
+        return rank < days.length && days[rank] == day ? rank + 1 : rank;
+    }
+
+    /**
+     * @return the number of trading days before a day
+     */
+    private int rankOf(int day) {
+        if (days.length == 0 || day < days[0])
+            return 0;
+        if (day > days[days.length - 1])
+            return days.length;
+
+        return ranks[day - days[0]];
+    }
+
+    private boolean containsAll(int[] sortedDays) {
+        for (int day : sortedDays) {
+            if (indexOf(day) < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param sortedDays days in increasing order
+     * @return a calendar of the days of this one and the given ones
+     */
+    private TradingCalendar merge(int[] sortedDays) {
+        int[] merged = new int[days.length + sortedDays.length];
+        int count = 0;
+
+        for (int i = 0, j = 0; i < days.length || j < sortedDays.length; ) {
+            int day;
+            if (j == sortedDays.length || (i < days.length && days[i] <= sortedDays[j]))
+                day = days[i++];
+            else
+                day = sortedDays[j++];
+
+            if (count == 0 || merged[count - 1] != day)
+                merged[count++] = day;
+        }
+
+        return new TradingCalendar(Arrays.copyOf(merged, count));
+    }
+}
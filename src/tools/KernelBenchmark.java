@@ -0,0 +1,181 @@
+package tools;
+
+import model.MovingAverageInterval;
+import model.PriceHistory;
+import model.PriceSeries;
+import model.SeriesKernels;
+
+import java.util.Random;
+
+/**
+ * Compares the SeriesKernels with element by element loops reading every price
+ * through the PriceSeries interface, as Stock used to: the moving averages,
+ * the crossovers of two moving averages, and a screening sweep computing
+ * the moving averages of many windows over the same prices.
+ * Each measurement is repeated after a warm up, so that both versions are compiled by C2.
+ *
+ * Usage: java tools.KernelBenchmark [days [rounds]]
+ */
+public class KernelBenchmark {
+
+    private static final int WINDOW = 50;
+
+    // windows of the moving averages computed by a screening sweep
+    private static final int SWEEP_FIRST_WINDOW = 5;
+    private static final int SWEEP_LAST_WINDOW = 200;
+
+    // keeps the results alive, so that the JIT cannot remove the loops
+    private static double sink;
+
+    public static void main(String[] args) {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        Random random = new Random(42);
+        int[] dayColumn = new int[days];
+        double[] closes = new double[days];
+        double price = 100;
+        for (int i = 0; i < days; i++) {
+            price *= 1 + random.nextGaussian() * 0.01;
+            dayColumn[i] = i;
+            closes[i] = price;
+        }
+        PriceSeries series = new PriceHistory(dayColumn, closes, days);
+        PriceSeries shortSeries = new PriceHistory(dayColumn, scalarMovingAverages(series, 20), days - 19);
+        PriceSeries longSeries = new PriceHistory(dayColumn, scalarMovingAverages(series, WINDOW), days - WINDOW + 1);
+
+        System.out.printf("%,d days, %,d rounds, ns per day%n", days, rounds);
+        for (int pass = 0; pass < 2; pass++) {
+            String label = pass == 0 ? "warm up" : "measure";
+            report(label, "1 moving average, element by element", days, rounds, () -> sink += scalarMovingAverages(series, WINDOW)[0]);
+            report(label, "1 moving average, kernels", days, rounds, () -> sink += kernelMovingAverages(series, WINDOW)[0]);
+            report(label, "4 moving averages, element by element", days, rounds, () -> sink += scalarStockAverages(series));
+            report(label, "4 moving averages, kernels", days, rounds, () -> sink += kernelStockAverages(series));
+            report(label, "crossovers, element by element", days, rounds, () -> sink += scalarCrossovers(shortSeries, longSeries));
+            report(label, "crossovers, kernels", days, rounds, () -> sink += kernelCrossovers(shortSeries, longSeries));
+            report(label, "sweep of 196 windows, element by element", days, rounds / 50, () -> sink += scalarSweep(series));
+            report(label, "sweep of 196 windows, kernels", days, rounds / 50, () -> sink += kernelSweep(series));
+        }
+        System.out.println(sink == 0 ? "" : "(done)");
+    }
+
+    private static void report(String label, String name, int days, int rounds, Runnable benchmark) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            benchmark.run();
+        long elapsed = System.nanoTime() - start;
+
+        if (label.equals("measure"))
+            System.out.printf("%-40s %8.3f%n", name, (double) elapsed / rounds / days);
+    }
+
+    // the loop Stock.computeMovingAverages used before the kernels
+    private static double[] scalarMovingAverages(PriceSeries series, int interval) {
+        double[] averages = new double[Math.max(series.size() - interval + 1, 0)];
+        double movingAverage = 0;
+
+        for (int i = 0; i < series.size(); i++) {
+            movingAverage += series.getClose(i);
+            if (i >= interval)
+                movingAverage -= series.getClose(i - interval);
+            if (i >= interval - 1)
+                averages[i - interval + 1] = movingAverage / interval;
+        }
+
+        return averages;
+    }
+
+    private static double[] kernelMovingAverages(PriceSeries series, int interval) {
+        double[] closes = new double[series.size()];
+        double[] averages = new double[Math.max(series.size() - interval + 1, 0)];
+        series.getCloses(0, closes.length, closes);
+        SeriesKernels.movingAverages(closes, closes.length, interval, averages);
+
+        return averages;
+    }
+
+    // the moving averages a Stock graphs, one after the other
+    private static double scalarStockAverages(PriceSeries series) {
+        double total = 0;
+        for (MovingAverageInterval interval : MovingAverageInterval.values())
+            total += scalarMovingAverages(series, interval.getDays())[0];
+
+        return total;
+    }
+
+    // the moving averages a Stock graphs, from the same prefix sums as Stock computes them
+    private static double kernelStockAverages(PriceSeries series) {
+        double[] closes = new double[series.size()];
+        double[] sums = new double[closes.length + 1];
+        series.getCloses(0, closes.length, closes);
+        SeriesKernels.prefixSums(closes, closes.length, sums);
+
+        double total = 0;
+        for (MovingAverageInterval interval : MovingAverageInterval.values()) {
+            double[] averages = new double[Math.max(closes.length - interval.getDays() + 1, 0)];
+            SeriesKernels.windowMeans(sums, closes.length, interval.getDays(), averages);
+            total += averages[0];
+        }
+
+        return total;
+    }
+
+    // the loop Stock.getIntersectionsList uses
+    private static int scalarCrossovers(PriceSeries shortList, PriceSeries longList) {
+        int pairs = Math.min(shortList.size(), longList.size());
+        int shortEnd = shortList.size() - 1;
+        int longEnd = longList.size() - 1;
+        int count = 0;
+
+        boolean shortOnTop = shortList.getClose(shortEnd) > longList.getClose(longEnd);
+        for (int i = 1; i < pairs; i++) {
+            double shortValue = shortList.getClose(shortEnd - i);
+            double longValue = longList.getClose(longEnd - i);
+
+            if (shortOnTop ? shortValue < longValue : shortValue > longValue) {
+                count++;
+                shortOnTop = !shortOnTop;
+            }
+        }
+
+        return count;
+    }
+
+    private static int kernelCrossovers(PriceSeries shortList, PriceSeries longList) {
+        int pairs = Math.min(shortList.size(), longList.size());
+        double[] shortValues = new double[pairs];
+        double[] longValues = new double[pairs];
+        shortList.getCloses(shortList.size() - pairs, pairs, shortValues);
+        longList.getCloses(longList.size() - pairs, pairs, longValues);
+
+        SeriesKernels.difference(shortValues, longValues, pairs, longValues);
+
+        return SeriesKernels.signChanges(longValues, pairs, new int[pairs]);
+    }
+
+    // moving averages of every window of a sweep, one after the other
+    private static double scalarSweep(PriceSeries series) {
+        double total = 0;
+        for (int window = SWEEP_FIRST_WINDOW; window <= SWEEP_LAST_WINDOW; window++)
+            total += scalarMovingAverages(series, window)[0];
+
+        return total;
+    }
+
+    // moving averages of every window of a sweep, from the same prefix sums
+    private static double kernelSweep(PriceSeries series) {
+        double[] closes = new double[series.size()];
+        double[] sums = new double[closes.length + 1];
+        double[] averages = new double[closes.length];
+        series.getCloses(0, closes.length, closes);
+        SeriesKernels.prefixSums(closes, closes.length, sums);
+
+        double total = 0;
+        for (int window = SWEEP_FIRST_WINDOW; window <= SWEEP_LAST_WINDOW; window++) {
+            SeriesKernels.windowMeans(sums, closes.length, window, averages);
+            total += averages[0];
+        }
+
+        return total;
+    }
+}
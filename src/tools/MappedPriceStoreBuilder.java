@@ -0,0 +1,54 @@
+package tools;
+
+import model.CompressedPriceFile;
+import model.MappedPriceStore;
+import model.PriceHistory;
+import model.PriceStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the shared MappedPriceStore from every stock of a PriceStore.
+ * Processes already mapping the previous file keep reading it until
+ * they notice the new one, so this can run while the application is open.
+ *
+ * Usage: java tools.MappedPriceStoreBuilder [storeDirectory [mappedFile]]
+ */
+public class MappedPriceStoreBuilder {
+
+    public static void main(String[] args) {
+        PriceStore store = args.length > 0 ? new PriceStore(new File(args[0])) : PriceStore.getDefault();
+        MappedPriceStore mappedStore = args.length > 1 ? new MappedPriceStore(new File(args[1])) : MappedPriceStore.getDefault();
+
+        File[] files = store.getDirectory().listFiles((directory, name) -> name.endsWith(CompressedPriceFile.EXTENSION));
+        if (files == null) {
+            System.err.println("Not a directory: " + store.getDirectory());
+            System.exit(1);
+        }
+
+        Map<String, PriceHistory> prices = new TreeMap<>();
+        long days = 0;
+        for (File file : files) {
+            String ticker = file.getName().substring(0, file.getName().length() - CompressedPriceFile.EXTENSION.length());
+            try {
+                PriceHistory history = CompressedPriceFile.read(file);
+                prices.put(ticker, history);
+                days += history.size();
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ": " + e);
+            }
+        }
+
+        try {
+            mappedStore.write(prices);
+        } catch (IOException e) {
+            System.err.println("Could not write " + mappedStore.getFile() + ": " + e);
+            System.exit(1);
+        }
+
+        System.out.printf("Wrote %d stocks (%,d days) to %s%n", prices.size(), days, mappedStore.getFile());
+    }
+}
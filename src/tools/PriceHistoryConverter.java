@@ -0,0 +1,100 @@
+package tools;
+
+import model.CompressedPriceFile;
+import model.PriceHistory;
+import model.PriceStore;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts a directory of price CSVs (one TICKER.csv per stock, in the layout
+ * served by the price provider) to compressed price files in a PriceStore.
+ * Files are converted in parallel. Prints the size on disk and the time taken
+ * to load the prices from each format.
+ *
+ * Usage: java tools.PriceHistoryConverter csvDirectory [storeDirectory]
+ */
+public class PriceHistoryConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: java tools.PriceHistoryConverter csvDirectory [storeDirectory]");
+            System.exit(1);
+        }
+
+        File csvDirectory = new File(args[0]);
+        PriceStore store = args.length > 1 ? new PriceStore(new File(args[1])) : PriceStore.getDefault();
+
+        File[] csvFiles = csvDirectory.listFiles((directory, name) -> name.endsWith(".csv"));
+        if (csvFiles == null) {
+            System.err.println("Not a directory: " + csvDirectory);
+            System.exit(1);
+        }
+
+        AtomicInteger converted = new AtomicInteger();
+        AtomicLong csvBytes = new AtomicLong();
+        AtomicLong compressedBytes = new AtomicLong();
+
+        Arrays.stream(csvFiles).parallel().forEach(csvFile -> {
+            String ticker = csvFile.getName().substring(0, csvFile.getName().length() - ".csv".length());
+
+            try {
+                store.write(ticker, readCsv(csvFile));
+                converted.incrementAndGet();
+                csvBytes.addAndGet(csvFile.length());
+                compressedBytes.addAndGet(store.getFile(ticker).length());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not convert " + csvFile + ": " + e);
+            }
+        });
+
+        System.out.printf("Converted %d of %d files to %s%n", converted.get(), csvFiles.length, store.getDirectory());
+        System.out.printf("CSV: %,d bytes, compressed: %,d bytes (%.1fx smaller)%n",
+                csvBytes.get(), compressedBytes.get(), csvBytes.get() / (double) Math.max(compressedBytes.get(), 1));
+
+        compareLoadTimes(csvFiles, store);
+    }
+
+    /**
+     * Loads every stock from both formats and prints the time taken by each.
+     */
+    private static void compareLoadTimes(File[] csvFiles, PriceStore store) {
+        long days = 0;
+
+        long csvStart = System.nanoTime();
+        for (File csvFile : csvFiles) {
+            try {
+                days += readCsv(csvFile).size();
+            } catch (IOException | RuntimeException e) {
+                // reported during the conversion
+            }
+        }
+        long csvNanos = System.nanoTime() - csvStart;
+
+        long compressedStart = System.nanoTime();
+        for (File csvFile : csvFiles) {
+            String ticker = csvFile.getName().substring(0, csvFile.getName().length() - ".csv".length());
+            try {
+                CompressedPriceFile.read(store.getFile(ticker));
+            } catch (IOException e) {
+                // reported during the conversion
+            }
+        }
+        long compressedNanos = System.nanoTime() - compressedStart;
+
+        System.out.printf("Loading %,d days: CSV %.1f ms, compressed %.1f ms%n",
+                days, csvNanos / 1e6, compressedNanos / 1e6);
+    }
+
+    private static PriceHistory readCsv(File csvFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+            return PriceHistory.fromCsv(reader);
+        }
+    }
+}
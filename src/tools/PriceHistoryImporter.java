@@ -0,0 +1,304 @@
+package tools;
+
+import model.PriceHistory;
+import model.PriceStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Imports a directory of price CSVs (one TICKER.csv per stock, in the layout served
+ * by the price provider) into a PriceStore, e.g. the nightly dumps of the whole market.
+ *
+ * Each file is memory-mapped and parsed from the mapped bytes, without decoding lines
+ * into Strings. Files are imported in parallel, and files larger than CHUNK_SIZE are
+ * split on line boundaries so that their chunks are parsed in parallel too.
+ * The columns are read as PriceHistory.fromCsv reads them: the date and the adjusted close.
+ *
+ * Usage: java tools.PriceHistoryImporter csvDirectory [storeDirectory]
+ */
+public class PriceHistoryImporter {
+
+    // bytes of a file parsed by a single task, larger files are split
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    // column of the adjusted close, in Date,Open,High,Low,Close,Volume,Adj Close
+    private static final int ADJUSTED_CLOSE_COLUMN = 6;
+
+    // powers of ten exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: java tools.PriceHistoryImporter csvDirectory [storeDirectory]");
+            System.exit(1);
+        }
+
+        File csvDirectory = new File(args[0]);
+        PriceStore store = args.length > 1 ? new PriceStore(new File(args[1])) : PriceStore.getDefault();
+
+        File[] csvFiles = csvDirectory.listFiles((directory, name) -> name.endsWith(".csv"));
+        if (csvFiles == null) {
+            System.err.println("Not a directory: " + csvDirectory);
+            System.exit(1);
+        }
+
+        AtomicInteger imported = new AtomicInteger();
+        AtomicLong days = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+
+        Arrays.stream(csvFiles).parallel().forEach(csvFile -> {
+            String ticker = csvFile.getName().substring(0, csvFile.getName().length() - ".csv".length());
+
+            try {
+                PriceHistory history = importFile(csvFile);
+                store.write(ticker, history);
+
+                imported.incrementAndGet();
+                days.addAndGet(history.size());
+                bytes.addAndGet(csvFile.length());
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not import " + csvFile + ": " + e);
+            }
+        });
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Imported %d of %d files to %s%n", imported.get(), csvFiles.length, store.getDirectory());
+        System.out.printf("%,d days, %,d bytes in %.2f s (%.0f MB/s)%n",
+                days.get(), bytes.get(), seconds, bytes.get() / 1e6 / Math.max(seconds, 1e-9));
+        System.out.println("Run tools.MappedPriceStoreBuilder to share the imported prices between processes");
+    }
+
+    /**
+     * Maps a CSV and parses its chunks in parallel.
+     *
+     * @param csvFile CSV of a stock, with a header line
+     * @return the prices in chronological order
+     * @throws IOException if the file cannot be mapped
+     */
+    static PriceHistory importFile(File csvFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("File too large to map: " + csvFile);
+
+            // the mapping stays valid once the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int[] boundaries = splitOnLines(buffer);
+        Chunk[] chunks = new Chunk[boundaries.length - 1];
+        IntStream.range(0, chunks.length).parallel()
+                .forEach(i -> chunks[i] = parseChunk(buffer, boundaries[i], boundaries[i + 1], i == 0));
+
+        int size = 0;
+        for (Chunk chunk : chunks)
+            size += chunk.size;
+
+        int[] days = new int[size];
+        double[] closes = new double[size];
+        int position = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.days, 0, days, position, chunk.size);
+            System.arraycopy(chunk.closes, 0, closes, position, chunk.size);
+            position += chunk.size;
+        }
+
+        // rows are the most recent first in the provider's files
+        if (size > 1 && days[0] > days[size - 1]) {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int day = days[i];
+                days[i] = days[j];
+                days[j] = day;
+
+                double close = closes[i];
+                closes[i] = closes[j];
+                closes[j] = close;
+            }
+        }
+
+        return new PriceHistory(days, closes, size);
+    }
+
+    /**
+     * @return the positions the chunks start at, each after a line break, followed by the end of the file
+     */
+    private static int[] splitOnLines(MappedByteBuffer buffer) {
+        int length = buffer.limit();
+        int[] boundaries = new int[length / CHUNK_SIZE + 2];
+        int count = 0;
+
+        boundaries[count++] = 0;
+        for (int position = CHUNK_SIZE; position < length; position += CHUNK_SIZE) {
+            int lineStart = position;
+            while (lineStart < length && buffer.get(lineStart - 1) != '\n')
+                lineStart++;
+
+            if (lineStart < length && lineStart > boundaries[count - 1])
+                boundaries[count++] = lineStart;
+        }
+        boundaries[count++] = length;
+
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Parses the lines between two positions of the file.
+     *
+     * @param isFirst true for the chunk starting the file, whose first line is the header
+     */
+    private static Chunk parseChunk(MappedByteBuffer buffer, int from, int to, boolean isFirst) {
+        Chunk chunk = new Chunk(Math.max((to - from) / 48, 16));
+        int position = from;
+
+        if (isFirst)
+            position = lineEnd(buffer, position, to) + 1; // skip first line
+
+        while (position < to) {
+            int end = lineEnd(buffer, position, to);
+            int lineEnd = end > position && buffer.get(end - 1) == '\r' ? end - 1 : end;
+
+            if (lineEnd > position) {
+                // the date is the first column, the adjusted close is found by counting commas
+                int columnStart = position;
+                for (int column = 0; column < ADJUSTED_CLOSE_COLUMN; column++) {
+                    while (columnStart < lineEnd && buffer.get(columnStart) != ',')
+                        columnStart++;
+                    if (columnStart == lineEnd)
+                        throw new IllegalArgumentException("Missing adjusted close: " + text(buffer, position, lineEnd));
+                    columnStart++;
+                }
+
+                int columnEnd = columnStart;
+                while (columnEnd < lineEnd && buffer.get(columnEnd) != ',')
+                    columnEnd++;
+
+                chunk.add(parseEpochDay(buffer, position), parseDouble(buffer, columnStart, columnEnd));
+            }
+
+            position = end + 1;
+        }
+
+        return chunk;
+    }
+
+    /**
+     * @return the position of the next line break, or the end of the chunk
+     */
+    private static int lineEnd(MappedByteBuffer buffer, int position, int to) {
+        while (position < to && buffer.get(position) != '\n')
+            position++;
+
+        return position;
+    }
+
+    /**
+     * Parses a date formatted as yyyy-MM-dd, as PriceHistory.parseEpochDay does.
+     */
+    private static int parseEpochDay(MappedByteBuffer buffer, int position) {
+        int year = digits(buffer, position, position + 4);
+        int month = digits(buffer, position + 5, position + 7);
+        int day = digits(buffer, position + 8, position + 10);
+
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static int digits(MappedByteBuffer buffer, int from, int to) {
+        int value = 0;
+
+        for (int i = from; i < to; i++) {
+            int c = i < buffer.limit() ? buffer.get(i) : -1;
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException("Invalid date: " + text(buffer, from, Math.min(to, buffer.limit())));
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * Parses a decimal number. Numbers of at most 15 digits without an exponent,
+     * as the provider writes prices, are divided by an exact power of ten, which
+     * rounds them as Double.parseDouble does. Other numbers are handed to it.
+     */
+    private static double parseDouble(MappedByteBuffer buffer, int from, int to) {
+        int position = from;
+        boolean isNegative = position < to && buffer.get(position) == '-';
+        if (isNegative)
+            position++;
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+
+        for (; position < to; position++) {
+            int c = buffer.get(position);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digitCount++;
+                if (fractionDigits >= 0)
+                    fractionDigits++;
+            }
+            else if (c == '.' && fractionDigits < 0)
+                fractionDigits = 0;
+            else
+                break;
+        }
+
+        if (position != to || digitCount == 0 || digitCount > 15)
+            return Double.parseDouble(text(buffer, from, to));
+
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return isNegative ? -value : value;
+    }
+
+    private static String text(MappedByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(from + i);
+
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Prices parsed from a chunk, in the order of the file
+     */
+    private static class Chunk {
+
+        private int[] days;
+        private double[] closes;
+        private int size;
+
+        Chunk(int capacity) {
+            days = new int[capacity];
+            closes = new double[capacity];
+        }
+
+        void add(int day, double close) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+
+            days[size] = day;
+            closes[size] = close;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package tools;
+
+import controller.LoginController;
+import model.BarResolution;
+import model.IndicatorCache;
+import model.LimitedSizeStockQueue;
+import model.MovingAverageInterval;
+import model.PriceSeries;
+import model.Stock;
+import model.TimeInterval;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Simulates analysts using the application at the same time, without a display,
+ * to tell how latencies grow with the number of users.
+ *
+ * Each session logs in through the account path of the LoginController, then selects
+ * stocks, switches timelines and selects pairs of moving averages at random, calling
+ * the model as the MainController does for each of these actions, without think time.
+ * Prices are served by a StandInPriceServer started on a free port, unless
+ * -Dinstock.pricesUrl points at another server. Downloaded prices and indicators
+ * go to a PriceStore and an IndicatorCache in a temporary directory, removed afterwards,
+ * so that every run starts from empty stores and the tickers of the test are never
+ * refreshed by the application, unless -Dinstock.priceStore or -Dinstock.indicatorCache
+ * point at other directories.
+ *
+ * Reports the throughput and the p50, p99 and p999 latencies of each action.
+ *
+ * Usage: java [-Dloadtest.account=test:test] [-Dstandin.latency=20] [-Dstandin.slowRate=0.05]
+ *             [-Dstandin.slowLatency=2000] [-Dstandin.failRate=0]
+ *             tools.SessionLoadTest [sessions [actionsPerSession [tickers]]]
+ */
+public class SessionLoadTest {
+
+    /**
+     * Actions of a session, each measured separately
+     */
+    enum Action {
+        Login, SelectStock, SwitchTimeline, SelectMovingAverages
+    }
+
+    // chances of each action after a stock is selected, in percent
+    private static final int SELECT_STOCK_CHANCE = 20;
+    private static final int SWITCH_TIMELINE_CHANCE = 40;
+
+    // keeps the values read alive, so that the JIT cannot remove the reads
+    private static volatile double sink;
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int actions = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int tickerCount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        String[] account = System.getProperty("loadtest.account", "test:test").split(":", 2);
+
+        // the stores are created once they are first used, so they are pointed at the temporary directory first
+        Path storeDirectory = Files.createTempDirectory("instock-loadtest-");
+        if (System.getProperty("instock.priceStore") == null)
+            System.setProperty("instock.priceStore", storeDirectory.resolve("price_history").toString());
+        if (System.getProperty("instock.indicatorCache") == null)
+            System.setProperty("instock.indicatorCache", storeDirectory.resolve("indicators").toString());
+
+        // the URL of the prices is read once Stock is loaded, so the server is started first
+        StandInPriceServer server = null;
+        if (System.getProperty("instock.pricesUrl") == null) {
+            server = new StandInPriceServer(null,
+                    Integer.getInteger("standin.latency", 20),
+                    Double.parseDouble(System.getProperty("standin.slowRate", "0.05")),
+                    Integer.getInteger("standin.slowLatency", 2000),
+                    Double.parseDouble(System.getProperty("standin.failRate", "0")));
+            server.start(0);
+            System.setProperty("instock.pricesUrl", "http://localhost:" + server.getPort() + "/table.csv?s={ticker}");
+        }
+
+        String[] tickers = new String[tickerCount];
+        for (int i = 0; i < tickerCount; i++)
+            tickers[i] = String.format("LT%04d", i);
+
+        System.out.printf("%d sessions of %d actions over %d tickers, prices from %s%n",
+                sessions, actions, tickerCount, System.getProperty("instock.pricesUrl"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        List<Future<Latencies>> results = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < sessions; i++) {
+            Session session = new Session(i, account[0], account.length > 1 ? account[1] : "", tickers);
+            results.add(executor.submit(() -> session.run(actions)));
+        }
+
+        Latencies total = new Latencies();
+        for (Future<Latencies> result : results)
+            total.addAll(result.get());
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        if (server != null)
+            server.stop();
+
+        IndicatorCache.awaitWrites();
+        delete(storeDirectory);
+
+        total.report(seconds);
+        System.exit(0);
+    }
+
+    /**
+     * Deletes a directory and everything in it
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    /**
+     * A simulated analyst, run on its own thread
+     */
+    private static class Session {
+
+        private final String email;
+        private final String password;
+        private final String[] tickers;
+        private final Random random;
+        private final Latencies latencies = new Latencies();
+
+        private LimitedSizeStockQueue recentlyViewedStocks;
+        private Stock currentStock;
+
+        Session(int id, String email, String password, String[] tickers) {
+            this.email = email;
+            this.password = password;
+            this.tickers = tickers;
+            this.random = new Random(id);
+        }
+
+        Latencies run(int actions) throws IOException {
+            long start = System.nanoTime();
+            login();
+            latencies.add(Action.Login, System.nanoTime() - start);
+
+            for (int i = 0; i < actions; i++) {
+                int roll = random.nextInt(100);
+                Action action = currentStock == null || roll < SELECT_STOCK_CHANCE ? Action.SelectStock
+                        : roll < SELECT_STOCK_CHANCE + SWITCH_TIMELINE_CHANCE ? Action.SwitchTimeline
+                        : Action.SelectMovingAverages;
+
+                start = System.nanoTime();
+                switch (action) {
+                    case SelectStock: selectStock(); break;
+                    case SwitchTimeline: switchTimeline(); break;
+                    default: selectMovingAverages(); break;
+                }
+                latencies.add(action, System.nanoTime() - start);
+            }
+
+            return latencies;
+        }
+
+        /**
+         * As LoginController.login
+         */
+        private void login() throws IOException {
+            if (!LoginController.isValidAccount(email, password))
+                throw new IllegalStateException("Invalid account " + email + ", set -Dloadtest.account=email:password");
+
+            recentlyViewedStocks = LoginController.readRecentlyViewedStocks(email);
+        }
+
+        /**
+         * As MainController.selectStock, which graphs the closing prices over one year
+         */
+        private void selectStock() {
+            String ticker = tickers[random.nextInt(tickers.length)];
+
+            currentStock = new Stock(ticker, ticker);
+            currentStock.setResolution(BarResolution.Daily);
+            recentlyViewedStocks.addToFront(currentStock);
+
+            graphClosingPrices(TimeInterval.OneYear);
+        }
+
+        /**
+         * As MainController.timelineSelected
+         */
+        private void switchTimeline() {
+            graphClosingPrices(TimeInterval.values()[random.nextInt(TimeInterval.values().length)]);
+        }
+
+        /**
+         * As MainController.graphClosingPrices
+         */
+        private void graphClosingPrices(TimeInterval timeline) {
+            currentStock.setTimeline(timeline);
+            consume(currentStock.getPricesInRange());
+            currentStock.getStatistics(timeline);
+        }
+
+        /**
+         * As MainController.graphMovingAverage with two moving averages selected,
+         * the shorter one being the first in the drop downs
+         */
+        private void selectMovingAverages() {
+            MovingAverageInterval[] intervals = MovingAverageInterval.values();
+            int first = random.nextInt(intervals.length);
+            int second = (first + 1 + random.nextInt(intervals.length - 1)) % intervals.length;
+            MovingAverageInterval shortMA = intervals[Math.min(first, second)];
+            MovingAverageInterval longMA = intervals[Math.max(first, second)];
+
+            consume(currentStock.getMovingAverage(shortMA));
+            consume(currentStock.getMovingAverage(longMA));
+            consume(currentStock.getIntersectionsList(shortMA, longMA));
+            currentStock.getRecommendation();
+        }
+
+        /**
+         * Reads the values as the chart would, so that lazy series are not measured as free
+         */
+        private void consume(PriceSeries values) {
+            double total = 0;
+            for (int i = 0; i < values.size(); i++)
+                total += values.getClose(i);
+
+            sink = total;
+        }
+    }
+
+    /**
+     * Latencies of each action, in nanoseconds
+     */
+    private static class Latencies {
+
+        private final Map<Action, long[]> values = new EnumMap<>(Action.class);
+        private final Map<Action, Integer> counts = new EnumMap<>(Action.class);
+
+        void add(Action action, long nanos) {
+            long[] actionValues = values.computeIfAbsent(action, key -> new long[64]);
+            int count = counts.getOrDefault(action, 0);
+
+            if (count == actionValues.length) {
+                actionValues = Arrays.copyOf(actionValues, count * 2);
+                values.put(action, actionValues);
+            }
+            actionValues[count] = nanos;
+            counts.put(action, count + 1);
+        }
+
+        void addAll(Latencies other) {
+            for (Map.Entry<Action, Integer> entry : other.counts.entrySet()) {
+                long[] otherValues = other.values.get(entry.getKey());
+                for (int i = 0; i < entry.getValue(); i++)
+                    add(entry.getKey(), otherValues[i]);
+            }
+        }
+
+        void report(double seconds) {
+            int totalCount = 0;
+
+            System.out.printf("%-22s %9s %9s %10s %10s %10s %10s%n", "action", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            for (Action action : Action.values()) {
+                int count = counts.getOrDefault(action, 0);
+                if (count == 0)
+                    continue;
+
+                long[] sorted = Arrays.copyOf(values.get(action), count);
+                Arrays.sort(sorted);
+                totalCount += count;
+
+                System.out.printf("%-22s %9d %9.1f %10.2f %10.2f %10.2f %10.2f%n", action, count, count / seconds,
+                        percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[count - 1] / 1e6);
+            }
+
+            System.out.printf("%d actions in %.2f s, %.1f actions/s%n", totalCount, seconds, totalCount / seconds);
+        }
+
+        /**
+         * @return the latency under which the given share of the sorted latencies fall, in milliseconds (nearest rank)
+         */
+        private static double percentile(long[] sorted, double share) {
+            int rank = (int) Math.ceil(share * sorted.length);
+
+            return sorted[Math.max(rank - 1, 0)] / 1e6;
+        }
+    }
+}
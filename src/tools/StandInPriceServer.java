@@ -0,0 +1,283 @@
+package tools;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the upstream price server, answering /table.csv?s=TICKER
+ * in the same CSV format. Serves TICKER.csv from a directory when it exists,
+ * otherwise a random walk that is always the same for a ticker.
+ * Responses are delayed to imitate the upstream latencies, including a slow tail
+ * and failures, so that timeouts and hedging of the PriceFetchClient can be tried.
+ * Like the upstream server, it compresses responses with gzip or deflate when asked to,
+ * and answers conditional requests with 304 Not Modified while a CSV has not changed.
+ *
+ * Point the application at it with -Dinstock.pricesUrl=http://localhost:8080/table.csv?s={ticker}
+ *
+ * Usage: java [-Dstandin.latency=20] [-Dstandin.slowRate=0.05] [-Dstandin.slowLatency=2000]
+ *             [-Dstandin.failRate=0] tools.StandInPriceServer [port [csvDirectory]]
+ */
+public class StandInPriceServer {
+
+    private static final String HEADER = "Date,Open,High,Low,Close,Volume,Adj Close\n";
+    private static final LocalDate FIRST_SYNTHETIC_DAY = LocalDate.of(1990, 1, 2);
+
+    private final File csvDirectory;
+    private final int latency;
+    private final double slowRate;
+    private final int slowLatency;
+    private final double failRate;
+
+    // CSV of each ticker, built once
+    private final Map<String, CsvResponse> responses = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    // last modification of the generated CSVs
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * @param csvDirectory directory of TICKER.csv files, null to only serve random walks
+     * @param latency milliseconds every response is delayed by
+     * @param slowRate share of responses delayed by slowLatency instead
+     * @param slowLatency milliseconds the slow responses are delayed by
+     * @param failRate share of responses answered with an HTTP 503
+     */
+    public StandInPriceServer(File csvDirectory, int latency, double slowRate, int slowLatency, double failRate) {
+        this.csvDirectory = csvDirectory;
+        this.latency = latency;
+        this.slowRate = slowRate;
+        this.slowLatency = slowLatency;
+        this.failRate = failRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        File csvDirectory = args.length > 1 ? new File(args[1]) : null;
+
+        StandInPriceServer server = new StandInPriceServer(csvDirectory,
+                Integer.getInteger("standin.latency", 20),
+                Double.parseDouble(System.getProperty("standin.slowRate", "0.05")),
+                Integer.getInteger("standin.slowLatency", 2000),
+                Double.parseDouble(System.getProperty("standin.failRate", "0")));
+        server.start(port);
+
+        System.out.println("Serving prices on http://localhost:" + server.getPort() + "/table.csv?s={ticker}");
+    }
+
+    /**
+     * Starts answering requests.
+     *
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be listened on
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newFixedThreadPool(64);
+        server.setExecutor(executor);
+        server.createContext("/table.csv", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the port listened on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String ticker = getTicker(exchange.getRequestURI().getRawQuery());
+            if (ticker == null) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Thread.sleep(random.nextDouble() < slowRate ? slowLatency : latency);
+
+            if (random.nextDouble() < failRate) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            CsvResponse response = responses.computeIfAbsent(ticker, this::readOrGenerateCsv);
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+            responseHeaders.set("ETag", response.eTag);
+            responseHeaders.set("Last-Modified", response.lastModified);
+
+            if (response.isNotModified(requestHeaders.getFirst("If-None-Match"), requestHeaders.getFirst("If-Modified-Since"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            String acceptedEncodings = requestHeaders.getFirst("Accept-Encoding");
+            byte[] csv = response.csv;
+            if (acceptedEncodings != null && acceptedEncodings.contains("gzip")) {
+                responseHeaders.set("Content-Encoding", "gzip");
+                csv = response.gzippedCsv;
+            }
+            else if (acceptedEncodings != null && acceptedEncodings.contains("deflate")) {
+                responseHeaders.set("Content-Encoding", "deflate");
+                csv = response.deflatedCsv;
+            }
+
+            responseHeaders.set("Content-Type", "text/csv");
+            exchange.sendResponseHeaders(200, csv.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(csv);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String getTicker(String query) throws IOException {
+        if (query == null)
+            return null;
+
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("s="))
+                return URLDecoder.decode(parameter.substring(2), "UTF-8");
+        }
+
+        return null;
+    }
+
+    private CsvResponse readOrGenerateCsv(String ticker) {
+        File csv = csvDirectory == null ? null : new File(csvDirectory, ticker + ".csv");
+
+        try {
+            if (csv != null && csv.isFile())
+                return new CsvResponse(Files.readAllBytes(csv.toPath()), csv.lastModified());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return new CsvResponse(generateCsv(ticker).getBytes(StandardCharsets.UTF_8), startTime);
+    }
+
+    /**
+     * @return a random walk over every weekday from 1990 until today, the most recent first
+     */
+    private static String generateCsv(String ticker) {
+        Random random = new Random(ticker.hashCode());
+        LocalDate today = LocalDate.now();
+
+        int dayCount = (int) (today.toEpochDay() - FIRST_SYNTHETIC_DAY.toEpochDay()) + 1;
+        String[] rows = new String[dayCount];
+        int rowCount = 0;
+        double price = 10 + random.nextInt(90);
+
+        for (LocalDate day = FIRST_SYNTHETIC_DAY; !day.isAfter(today); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY)
+                continue;
+
+            price = Math.max(price * (1 + random.nextGaussian() * 0.015 + 0.0003), 0.01);
+            String close = String.format(Locale.ROOT, "%.6f", price);
+            rows[rowCount++] = day + "," + close + "," + close + "," + close + "," + close + ","
+                    + (100000 + random.nextInt(900000)) + "," + close + "\n";
+        }
+
+        StringBuilder csv = new StringBuilder(HEADER.length() + rowCount * 80);
+        csv.append(HEADER);
+        for (int i = rowCount - 1; i >= 0; i--)
+            csv.append(rows[i]);
+
+        return csv.toString();
+    }
+
+    /**
+     * A CSV in every encoding it can be sent in, and its validators
+     */
+    private static class CsvResponse {
+
+        private final byte[] csv;
+        private final byte[] gzippedCsv;
+        private final byte[] deflatedCsv;
+        private final String eTag;
+        private final String lastModified;
+        private final long lastModifiedSeconds;
+
+        CsvResponse(byte[] csv, long lastModified) {
+            this.csv = csv;
+            this.eTag = "\"" + Integer.toHexString(Arrays.hashCode(csv)) + "\"";
+            this.lastModifiedSeconds = lastModified / 1000;
+            this.lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    Instant.ofEpochSecond(lastModifiedSeconds).atZone(ZoneOffset.UTC));
+
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(csv.length / 4);
+            try (GZIPOutputStream output = new GZIPOutputStream(gzipped)) {
+                output.write(csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.gzippedCsv = gzipped.toByteArray();
+
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(csv.length / 4);
+            try (DeflaterOutputStream output = new DeflaterOutputStream(deflated)) {
+                output.write(csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.deflatedCsv = deflated.toByteArray();
+        }
+
+        /**
+         * @return true if the validators of a conditional request match the CSV,
+         * the ETag taking precedence over the date as in RFC 7232
+         */
+        boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+            if (ifNoneMatch != null)
+                return ifNoneMatch.equals(eTag);
+
+            if (ifModifiedSince != null) {
+                try {
+                    return ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() >= lastModifiedSeconds;
+                } catch (DateTimeParseException e) {
+                    return false;
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package view;
+
+import javafx.scene.chart.ValueAxis;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Time axis for values that are epoch days, as in PriceSeries.
+ *
+ * Unlike a CategoryAxis, the position of a point is computed from its value,
+ * so laying out the axis only depends on its length in pixels: it places as many
+ * ticks as fit, on calendar boundaries (days, weeks, months, quarters or years),
+ * whatever the number of points graphed. Series of different lengths line up
+ * on the same day without matching their x values.
+ */
+public class DateAxis extends ValueAxis<Number> {
+
+    // pixels between two ticks, at least, so that their labels do not overlap
+    private static final double MIN_TICK_SPACING = 90;
+
+    /**
+     * Spacing of the ticks, from the finest to the coarsest
+     */
+    private enum TickUnit {
+        Day(ChronoUnit.DAYS, 1, "MMM d"),
+        Week(ChronoUnit.WEEKS, 1, "MMM d"),
+        Month(ChronoUnit.MONTHS, 1, "MMM yyyy"),
+        Quarter(ChronoUnit.MONTHS, 3, "MMM yyyy"),
+        HalfYear(ChronoUnit.MONTHS, 6, "MMM yyyy"),
+        Year(ChronoUnit.YEARS, 1, "yyyy"),
+        TwoYears(ChronoUnit.YEARS, 2, "yyyy"),
+        FiveYears(ChronoUnit.YEARS, 5, "yyyy"),
+        TenYears(ChronoUnit.YEARS, 10, "yyyy");
+
+        private final ChronoUnit unit;
+        private final int amount;
+        private final DateTimeFormatter format;
+
+        TickUnit(ChronoUnit unit, int amount, String pattern) {
+            this.unit = unit;
+            this.amount = amount;
+            this.format = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        /**
+         * @return the approximate number of days between two ticks
+         */
+        double getDays() {
+            return unit.getDuration().toDays() * (double) amount;
+        }
+
+        /**
+         * @return the first tick on or after a day
+         */
+        LocalDate firstTick(LocalDate day) {
+            switch (unit) {
+                case DAYS:
+                    return day;
+                case WEEKS:
+                    // ticks are on mondays
+                    return day.plusDays((8 - day.getDayOfWeek().getValue()) % 7);
+                case MONTHS:
+                    LocalDate month = day.withDayOfMonth(1);
+                    if (month.isBefore(day))
+                        month = month.plusMonths(1);
+                    return month.plusMonths(Math.floorMod(-(month.getMonthValue() - 1), amount));
+                default:
+                    LocalDate year = day.withDayOfYear(1);
+                    if (year.isBefore(day))
+                        year = year.plusYears(1);
+                    return year.plusYears(Math.floorMod(-year.getYear(), amount));
+            }
+        }
+    }
+
+    // spacing of the ticks last computed, used to format their labels
+    private TickUnit tickUnit = TickUnit.Day;
+
+    public DateAxis() {
+        setMinorTickVisible(false);
+    }
+
+    /**
+     * @param label text shown along the axis
+     */
+    public DateAxis(String label) {
+        this();
+        setLabel(label);
+    }
+
+    /**
+     * Fits the axis to the first and last day graphed, without margins.
+     */
+    @Override
+    protected Object autoRange(double minValue, double maxValue, double length, double labelSize) {
+        if (minValue == maxValue) {
+            minValue--;
+            maxValue++;
+        }
+
+        return new double[] { minValue, maxValue, calculateNewScale(length, minValue, maxValue) };
+    }
+
+    @Override
+    protected void setRange(Object range, boolean animate) {
+        double[] bounds = (double[]) range;
+
+        setLowerBound(bounds[0]);
+        setUpperBound(bounds[1]);
+        currentLowerBound.set(bounds[0]);
+        setScale(bounds[2]);
+    }
+
+    @Override
+    protected Object getRange() {
+        return new double[] { getLowerBound(), getUpperBound(), getScale() };
+    }
+
+    /**
+     * Picks the finest spacing for which the ticks fit in the length of the axis.
+     */
+    @Override
+    protected List<Number> calculateTickValues(double length, Object range) {
+        double[] bounds = (double[]) range;
+        double lower = Math.ceil(bounds[0]);
+        double upper = Math.floor(bounds[1]);
+        if (!(upper >= lower) || !(length > 0))
+            return Collections.emptyList();
+
+        double maxTicks = Math.max(length / MIN_TICK_SPACING, 1);
+        double spanDays = upper - lower + 1;
+
+        tickUnit = TickUnit.TenYears;
+        for (TickUnit unit : TickUnit.values()) {
+            if (spanDays / unit.getDays() <= maxTicks) {
+                tickUnit = unit;
+                break;
+            }
+        }
+
+        List<Number> ticks = new ArrayList<>();
+        LocalDate last = LocalDate.ofEpochDay((long) upper);
+        for (LocalDate tick = tickUnit.firstTick(LocalDate.ofEpochDay((long) lower)); !tick.isAfter(last);
+                tick = tick.plus(tickUnit.amount, tickUnit.unit))
+            ticks.add(tick.toEpochDay());
+
+        return ticks;
+    }
+
+    @Override
+    protected List<Number> calculateMinorTickMarks() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected String getTickMarkLabel(Number value) {
+        return LocalDate.ofEpochDay(value.longValue()).format(tickUnit.format);
+    }
+}
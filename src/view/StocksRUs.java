@@ -6,11 +6,13 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import model.LimitedSizeStockQueue;
+import model.PriceRefreshScheduler;
 import model.UserAccount;
 
 import java.io.IOException;
 
 import controller.MainController;
+import controller.MainViewLoader;
 
 public class StocksRUs extends Application {
     private static UserAccount currentUser;
@@ -31,6 +33,12 @@ public class StocksRUs extends Application {
         primaryStage.setScene(loginScene);
         primaryStage.setResizable(false);
         primaryStage.show();
+
+        // start preparing the MainView while the user logs in
+        MainViewLoader.preload();
+
+        // prices published while the application was closed are refreshed now, then after every close
+        PriceRefreshScheduler.getDefault().start();
     }
 
     public static UserAccount getCurrentUser() {
@@ -43,8 +51,11 @@ public class StocksRUs extends Application {
 
     @Override
     public void stop() {
+        PriceRefreshScheduler.getDefault().stop();
+
         if (StocksRUs.getCurrentUser() != null) {
             MainController.persistRecentlyViewedStocks();
+            MainController.persistSession();
         }
     }
 }